@@ -8,8 +8,44 @@ import java.lang.annotation.Target;
 /**
  * Created by julienFueled on 5/10/17.
  */
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.TYPE)
 public @interface DeepLink {
+
+    /**
+     * The URL path patterns to be linked to the annotated fragment, such as {@code /m/{id}}.
+     * Path variables can declare a type, one of {@code boolean}, {@code int}, {@code long},
+     * {@code float}, {@code double} or {@code string}, as in {@code /order/{id:long}}, they are
+     * then only matched by valid values and passed to the fragment with that type.
+     * A {@code *} segment matches any single segment, as in {@code /cms/{slug}/*}, and a trailing
+     * {@code **} matches any number of segments, as in {@code /help/**}.
+     *
+     * @return the URL path patterns.
+     */
     String[] value();
+
+    /**
+     * The scheme a link must have to be matched, such as {@code https}.
+     * Any scheme is accepted by default.
+     *
+     * @return the scheme of the links.
+     */
+    String scheme() default "";
+
+    /**
+     * The host a link must have to be matched, such as {@code fueled.com}.
+     * Any host is accepted by default.
+     *
+     * @return the host of the links.
+     */
+    String host() default "";
+
+    /**
+     * The query keys a link must have to be matched, keys ending with {@code ?} such as
+     * {@code utm_source?} are optional. The values found in the link are passed to the fragment
+     * as strings, using the query keys as names.
+     *
+     * @return the query keys of the links.
+     */
+    String[] query() default {};
 }
@@ -9,7 +9,7 @@ import java.lang.annotation.Target;
  * Created by hussein@fueled.com on 05/06/2017.
  * Copyright (c) 2017 Fueled. All rights reserved.
  */
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.TYPE)
 public @interface DeepLinkHandler {
 
@@ -21,4 +21,14 @@ public @interface DeepLinkHandler {
      */
     String value() default "";
 
+    /**
+     * Whether a dedicated matcher should be generated for the deep link routes, instead of
+     * relying on the generic route lookup done at runtime. The generated matcher switches on
+     * the number of path segments and then on each literal segment, it is used both by the
+     * generated handler and by the Flowr instances the handler is set on.
+     *
+     * @return true if the matcher should be generated.
+     */
+    boolean generateMatcher() default false;
+
 }
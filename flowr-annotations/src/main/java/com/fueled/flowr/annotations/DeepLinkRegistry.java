@@ -0,0 +1,27 @@
+package com.fueled.flowr.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a registry of the deep links of the current module and of all the modules it depends
+ * on, to be used in the application module. Each module compiled with the annotation processor
+ * generates a route table of its {@link DeepLink} fragments, the registry then creates a deep link
+ * handler for each route table found at compile time, so that no route needs to be discovered
+ * at runtime.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface DeepLinkRegistry {
+
+    /**
+     * The name of the generated registry class, by default this will be the name
+     * of the class annotated with "Impl" appended at the end.
+     *
+     * @return the name to be used for the generated class.
+     */
+    String value() default "";
+
+}
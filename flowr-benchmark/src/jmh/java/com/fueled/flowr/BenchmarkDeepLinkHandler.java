@@ -0,0 +1,24 @@
+package com.fueled.flowr;
+
+import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;
+
+import java.util.List;
+
+/**
+ * Deep link handler registering a generated list of routes.
+ */
+final class BenchmarkDeepLinkHandler extends AbstractFlowrDeepLinkHandler<BenchmarkFragment> {
+
+    private final List<String> patterns;
+
+    BenchmarkDeepLinkHandler(List<String> patterns) {
+        this.patterns = patterns;
+    }
+
+    @Override
+    protected void registerRoutes() {
+        for (String pattern : patterns) {
+            addFragment(pattern, BenchmarkFragment.class);
+        }
+    }
+}
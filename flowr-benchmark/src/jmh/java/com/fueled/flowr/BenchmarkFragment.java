@@ -0,0 +1,65 @@
+package com.fueled.flowr;
+
+import android.graphics.drawable.Drawable;
+import android.support.v4.app.Fragment;
+
+/**
+ * Fragment linked to every benchmark route, deep links only need its class.
+ */
+public class BenchmarkFragment extends Fragment implements FlowrFragment {
+
+    @Override
+    public boolean onBackPressed() {
+        return false;
+    }
+
+    @Override
+    public boolean onNavigationIconClick() {
+        return false;
+    }
+
+    @Override
+    public NavigationIconType getNavigationIconType() {
+        return NavigationIconType.HIDDEN;
+    }
+
+    @Override
+    public Drawable getNavigationIcon() {
+        return null;
+    }
+
+    @Override
+    public boolean isToolbarVisible() {
+        return false;
+    }
+
+    @Override
+    public boolean isDrawerEnabled() {
+        return false;
+    }
+
+    @Override
+    public int getScreenOrientation() {
+        return 0;
+    }
+
+    @Override
+    public int getNavigationBarColor() {
+        return 0;
+    }
+
+    @Override
+    public String getTitle() {
+        return null;
+    }
+
+    @Override
+    public void onShown() {
+        // Do Nothing.
+    }
+
+    @Override
+    public void onHidden() {
+        // Do Nothing.
+    }
+}
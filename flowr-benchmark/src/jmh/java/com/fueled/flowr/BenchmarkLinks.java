@@ -0,0 +1,108 @@
+package com.fueled.flowr;
+
+import android.content.Intent;
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the routes and links resolved by the benchmarks.
+ * <p/>
+ * Routes are spread over 16 sections and alternate between a literal path, a typed path variable,
+ * a string path variable followed by a literal, and a host with query keys. Missed links share
+ * the section of a route so that they are only rejected after the first segment.
+ */
+final class BenchmarkLinks {
+
+    /**
+     * The number of links resolved in turn by a benchmark, a power of two.
+     */
+    static final int LINK_COUNT = 1024;
+
+    private static final int SECTION_COUNT = 16;
+    private static final String BASE_URL = "https://fueled.com";
+
+    private BenchmarkLinks() {
+    }
+
+    /**
+     * Create the handlers, the routes being distributed evenly between them.
+     *
+     * @param routeCount   the total number of routes.
+     * @param handlerCount the number of handlers.
+     * @return the handlers.
+     */
+    static BenchmarkDeepLinkHandler[] createHandlers(int routeCount, int handlerCount) {
+        List<List<String>> patterns = new ArrayList<>(handlerCount);
+        for (int i = 0; i < handlerCount; i++) {
+            patterns.add(new ArrayList<String>());
+        }
+
+        for (int i = 0; i < routeCount; i++) {
+            patterns.get(i % handlerCount).add(pattern(i));
+        }
+
+        BenchmarkDeepLinkHandler[] handlers = new BenchmarkDeepLinkHandler[handlerCount];
+        for (int i = 0; i < handlerCount; i++) {
+            handlers[i] = new BenchmarkDeepLinkHandler(patterns.get(i));
+        }
+
+        return handlers;
+    }
+
+    /**
+     * Create the deep link intents, picking routes at random with a fixed seed.
+     *
+     * @param routeCount the total number of routes.
+     * @param hitRatio   the share of links matching a route, between 0 and 1.
+     * @return {@link #LINK_COUNT} intents.
+     */
+    static Intent[] createIntents(int routeCount, double hitRatio) {
+        Random random = new Random(42);
+        Intent[] intents = new Intent[LINK_COUNT];
+
+        for (int i = 0; i < LINK_COUNT; i++) {
+            int route = random.nextInt(routeCount);
+            String link = random.nextDouble() < hitRatio ? link(route) : missedLink(route);
+            intents[i] = new Intent().setData(Uri.parse(link));
+        }
+
+        return intents;
+    }
+
+    private static String pattern(int route) {
+        String path = "/s" + (route % SECTION_COUNT) + "/r" + route;
+
+        switch (route % 4) {
+            case 1:
+                return path + "/{id:long}";
+            case 2:
+                return path + "/{slug}/details";
+            case 3:
+                return BASE_URL + path + "?q&page?";
+            default:
+                return path;
+        }
+    }
+
+    private static String link(int route) {
+        String url = BASE_URL + "/s" + (route % SECTION_COUNT) + "/r" + route;
+
+        switch (route % 4) {
+            case 1:
+                return url + "/42";
+            case 2:
+                return url + "/flowr/details";
+            case 3:
+                return url + "?q=flowr&page=2";
+            default:
+                return url;
+        }
+    }
+
+    private static String missedLink(int route) {
+        return BASE_URL + "/s" + (route % SECTION_COUNT) + "/m" + route + "/42";
+    }
+}
@@ -0,0 +1,64 @@
+package com.fueled.flowr;
+
+import android.content.Intent;
+
+import com.fueled.flowr.internal.FlowrDeepLinkInfo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resolution of deep links by the handlers themselves, queried in order until one
+ * of them matches the link.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeepLinkHandlerBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int routeCount;
+
+    @Param({"1.0", "0.5", "0.0"})
+    public double hitRatio;
+
+    @Param({"1", "4"})
+    public int handlerCount;
+
+    private BenchmarkDeepLinkHandler[] handlers;
+    private Intent[] intents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        handlers = BenchmarkLinks.createHandlers(routeCount, handlerCount);
+        intents = BenchmarkLinks.createIntents(routeCount, hitRatio);
+
+        // the routes are registered and indexed on the first lookup
+        for (BenchmarkDeepLinkHandler handler : handlers) {
+            handler.getDeepLinkInfoForIntent(intents[0]);
+        }
+    }
+
+    @Benchmark
+    public FlowrDeepLinkInfo getDeepLinkInfoForIntent() {
+        Intent intent = intents[next++ & (BenchmarkLinks.LINK_COUNT - 1)];
+
+        for (BenchmarkDeepLinkHandler handler : handlers) {
+            FlowrDeepLinkInfo info = handler.getDeepLinkInfoForIntent(intent);
+            if (info != null) {
+                return info;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.fueled.flowr;
+
+import android.content.Intent;
+
+import com.fueled.flowr.internal.TransactionData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resolution of deep links by the router, from the intent of a transaction to its
+ * fragment class and arguments.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlowrDeepLinkBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int routeCount;
+
+    @Param({"1.0", "0.5", "0.0"})
+    public double hitRatio;
+
+    @Param({"1", "4"})
+    public int handlerCount;
+
+    private Flowr flowr;
+    private Intent[] intents;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        flowr = new Flowr(0, null, null);
+        flowr.setDeepLinkHandlers(BenchmarkLinks.createHandlers(routeCount, handlerCount));
+        intents = BenchmarkLinks.createIntents(routeCount, hitRatio);
+    }
+
+    @Benchmark
+    public TransactionData<BenchmarkFragment> injectDeepLinkInfo() {
+        TransactionData<BenchmarkFragment> data = new TransactionData<>(BenchmarkFragment.class);
+        data.setDeepLinkIntent(intents[next++ & (BenchmarkLinks.LINK_COUNT - 1)]);
+        flowr.injectDeepLinkInfo(data);
+        return data;
+    }
+}
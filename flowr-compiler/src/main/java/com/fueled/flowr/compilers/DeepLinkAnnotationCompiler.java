@@ -2,80 +2,384 @@ package com.fueled.flowr.compilers;
 
 import com.fueled.flowr.annotations.DeepLink;
 import com.fueled.flowr.annotations.DeepLinkHandler;
+import com.fueled.flowr.annotations.DeepLinkRegistry;
 import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
 
 /**
  * Annotation processor that will generate the FlowrDeepLinkHandlerImpl based on the information
  * provided by {@link DeepLink} and {@link DeepLinkHandler}.
+ * <p/>
+ * The {@link DeepLink} fragments of each module are also registered by a route table generated
+ * in the {@value #ROUTES_PACKAGE_NAME} package, named after the {@value #MODULE_NAME_OPTION}
+ * processor option or, by default, after the package shared by the fragments. The class annotated
+ * with {@link DeepLinkRegistry} in the application module then gets a registry creating the route
+ * tables of all the modules, found in that package at compile time.
+ * <p/>
+ * The processor is declared to Gradle as an aggregating incremental processor, which is only
+ * honoured from Gradle 4.7: every generated class has all the deep link fragments and its
+ * annotated class as originating elements, so that only the generated classes are rebuilt when
+ * an annotated class changes. Annotated classes are collected across rounds and each class is
+ * only written once.
+ * <p/>
+ * When the {@value #BINARY_ROUTE_TABLE_OPTION} processor option is set to true, the routes of
+ * each generated class are written to a binary route table resource next to it instead of being
+ * registered one by one and their fragments are created through reflection, which keeps the
+ * generated code small for very large route sets. The ProGuard rules keeping these fragments are
+ * then generated along with each table.
  */
 @SupportedAnnotationTypes({"com.fueled.flowr.annotations.DeepLink",
-        "com.fueled.flowr.annotations.DeepLinkHandler"})
+        "com.fueled.flowr.annotations.DeepLinkHandler",
+        "com.fueled.flowr.annotations.DeepLinkRegistry"})
+@SupportedOptions({DeepLinkAnnotationCompiler.MODULE_NAME_OPTION,
+        DeepLinkAnnotationCompiler.BINARY_ROUTE_TABLE_OPTION})
 @SupportedSourceVersion(SourceVersion.RELEASE_7)
 @AutoService(Processor.class)
 public class DeepLinkAnnotationCompiler extends AbstractProcessor {
 
-    private static final String deeplinkFormat = "addFragment($S, $T.class)";
+    /**
+     * The processor option naming the route table of the module, which must be unique
+     * across the modules of an application. The route table of a module without a registry
+     * is only generated when this option is set.
+     */
+    static final String MODULE_NAME_OPTION = "flowr.moduleName";
+
+    /**
+     * The processor option writing the routes to binary route table resources.
+     */
+    static final String BINARY_ROUTE_TABLE_OPTION = "flowr.binaryRouteTable";
+
+    /**
+     * The package of the generated route tables.
+     */
+    static final String ROUTES_PACKAGE_NAME = "com.fueled.flowr.routes";
+
+    private static final String deeplinkFormat = "addRoute($S)";
+    private static final String routeTableFormat = "addRouteTable($S)";
+    private static final String ROUTE_TABLE_EXTENSION = ".routes";
+    private static final String KEEP_RULES_DIRECTORY = "META-INF/proguard/";
     private static final String HANDLER_FILE_NAME_POST_FIX = "Impl";
+    private static final String ROUTE_TABLE_PREFIX = "DeepLinkRoutes_";
     private static final String FLOWR_INTERNAL_PACKAGE_NAME = "com.fueled.flowr.internal";
     private static final String ABSTRACT_HANDLER_CLASS_NAME = "AbstractFlowrDeepLinkHandler";
+    private static final ClassName FRAGMENT = ClassName.get("android.support.v4.app", "Fragment");
+    private static final ClassName DEEP_LINK_HANDLER = ClassName.get(FLOWR_INTERNAL_PACKAGE_NAME,
+            "FlowrDeepLinkHandler");
+
+    private final List<TypeElement> deepLinkElements = new ArrayList<>();
+    private final Set<String> generatedClasses = new HashSet<>();
+    private final Set<TypeElement> invalidElements = new HashSet<>();
+    private ClassName routeTable;
+    private boolean routeTableProcessed;
+    private boolean hasRegistry;
 
     /**
-     * Main method that will build the deep link handler implementation class.
+     * Main method that will build the route table, the deep link handler and the registry
+     * implementation classes.
      *
      * @param annotations the list of Annotations.
      * @param roundEnv    The environment object.
      */
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-        System.out.println("[FlowR]: generating deep Link Handler...");
+        for (Element element : roundEnv.getElementsAnnotatedWith(DeepLink.class)) {
+            if (!generatedClasses.isEmpty()) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Deep link declared after the deep link handler was generated, it must "
+                                + "not be added by another annotation processor.", element);
+            }
 
-        MethodSpec.Builder constructorBuilder = generateConstructor();
+            deepLinkElements.add((TypeElement) element);
+        }
 
-        // Browse all the annotations and create the FlowrDeepLinkHandler constructor
-        for (Element element : roundEnv.getElementsAnnotatedWith(DeepLink.class)) {
-            String[] value = element.getAnnotation(DeepLink.class).value();
+        if (!roundEnv.getElementsAnnotatedWith(DeepLinkRegistry.class).isEmpty()) {
+            hasRegistry = true;
+        }
+
+        // the route table is only needed by the registry of the application, found in this
+        // module or, for a library module declaring its name, in the module depending on it
+        if (!routeTableProcessed && !deepLinkElements.isEmpty()
+                && (hasRegistry || processingEnv.getOptions().containsKey(MODULE_NAME_OPTION))) {
+            routeTableProcessed = true;
+            String moduleName = getModuleName();
 
-            for (String url : value) {
-                constructorBuilder.addStatement(deeplinkFormat, url, ClassName.get(element.asType()));
+            if (moduleName != null) {
+                routeTable = ClassName.get(ROUTES_PACKAGE_NAME, ROUTE_TABLE_PREFIX + moduleName);
+                generatedClasses.add(routeTable.toString());
+                generateClass(ROUTES_PACKAGE_NAME,
+                        buildHandler(ROUTES_PACKAGE_NAME, routeTable.simpleName(), false, null));
             }
         }
 
         for (Element element : roundEnv.getElementsAnnotatedWith(DeepLinkHandler.class)) {
-            String packageName = processingEnv.getElementUtils().getPackageOf(element)
-                    .getQualifiedName().toString();
+            DeepLinkHandler annotation = element.getAnnotation(DeepLinkHandler.class);
+            String packageName = getPackageName(element);
+            String className = getClassName(element, annotation.value());
 
-            String className = element.getAnnotation(DeepLinkHandler.class).value();
-
-            if (className.isEmpty()) {
-                className = element.getSimpleName().toString() + HANDLER_FILE_NAME_POST_FIX;
+            if (generatedClasses.add(packageName + "." + className)) {
+                generateClass(packageName, buildHandler(packageName, className,
+                        annotation.generateMatcher(), element));
             }
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(DeepLinkRegistry.class)) {
+            DeepLinkRegistry annotation = element.getAnnotation(DeepLinkRegistry.class);
+            String packageName = getPackageName(element);
+            String className = getClassName(element, annotation.value());
 
-            generateDeepLinkHandler(packageName, className, constructorBuilder);
+            if (generatedClasses.add(packageName + "." + className)) {
+                generateClass(packageName, buildRegistry(className, element));
+            }
         }
 
         return true;
     }
 
+    private String getPackageName(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    private static String getClassName(Element element, String name) {
+        return name.isEmpty()
+                ? element.getSimpleName().toString() + HANDLER_FILE_NAME_POST_FIX : name;
+    }
+
+    /**
+     * Returns the name of the current module, from the processor option if set, else from
+     * the longest package shared by the deep link fragments of the module. An error is reported
+     * when the option is not set and the fragments do not share any package, since the route
+     * table would otherwise clash with the ones of the other modules.
+     *
+     * @return the module name, usable in a class name, or null if it could not be determined.
+     */
+    private String getModuleName() {
+        String name = processingEnv.getOptions().get(MODULE_NAME_OPTION);
+
+        if (name == null || name.isEmpty()) {
+            name = null;
+            for (TypeElement element : deepLinkElements) {
+                String packageName = getPackageName(element);
+                name = name == null ? packageName : getCommonPackage(name, packageName);
+            }
+
+            if (name.isEmpty()) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "The deep link fragments of this module do not share a package, set the "
+                                + MODULE_NAME_OPTION + " processor option to name its route table.",
+                        deepLinkElements.get(0));
+                return null;
+            }
+        }
+
+        StringBuilder moduleName = new StringBuilder(name);
+        for (int i = 0; i < moduleName.length(); i++) {
+            if (!Character.isJavaIdentifierPart(moduleName.charAt(i))) {
+                moduleName.setCharAt(i, '_');
+            }
+        }
+
+        return moduleName.toString();
+    }
+
+    private static String getCommonPackage(String package1, String package2) {
+        String[] names1 = package1.split("\\.");
+        String[] names2 = package2.split("\\.");
+        StringBuilder common = new StringBuilder();
+
+        for (int i = 0; i < Math.min(names1.length, names2.length); i++) {
+            if (!names1[i].equals(names2[i])) {
+                break;
+            }
+
+            common.append(i > 0 ? "." : "").append(names1[i]);
+        }
+
+        return common.toString();
+    }
+
+    /**
+     * Build a deep link handler implementation class registering all the collected deep links,
+     * writing them to a binary route table if the option is set.
+     *
+     * @param packageName     the package of the implementation class.
+     * @param className       the name to be used for the implementation class.
+     * @param generateMatcher whether a dedicated matcher should be generated.
+     * @param element         the class annotated with the handler annotation, or null for
+     *                        a route table.
+     * @return the implementation class, with the deep link fragments and the annotated handler as
+     * originating elements.
+     */
+    private TypeSpec buildHandler(String packageName, String className, boolean generateMatcher,
+                                  Element element) {
+        MethodSpec.Builder registerRoutesBuilder = generateRegisterRoutes();
+        TypeSpec.Builder classBuilder = getClassObject(className);
+        List<DeepLinkPattern> patterns = new ArrayList<>();
+        List<TypeElement> fragments = new ArrayList<>();
+        DeepLinkRouteTableWriter routeTableWriter = null;
+
+        if (Boolean.parseBoolean(processingEnv.getOptions().get(BINARY_ROUTE_TABLE_OPTION))) {
+            routeTableWriter = new DeepLinkRouteTableWriter();
+        }
+
+        if (element != null) {
+            classBuilder.addOriginatingElement(element);
+        }
+
+        // Browse all the annotations and create the FlowrDeepLinkHandler route registration
+        for (TypeElement deepLinkElement : deepLinkElements) {
+            DeepLink deepLink = deepLinkElement.getAnnotation(DeepLink.class);
+            classBuilder.addOriginatingElement(deepLinkElement);
+
+            for (String path : deepLink.value()) {
+                String url;
+                try {
+                    url = DeepLinkPattern.compose(deepLink.scheme(), deepLink.host(), path,
+                            deepLink.query());
+                    patterns.add(DeepLinkPattern.parse(url));
+                } catch (IllegalArgumentException e) {
+                    // only reported once, with the first generated class
+                    if (invalidElements.add(deepLinkElement)) {
+                        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                e.getMessage(), deepLinkElement);
+                    }
+                    continue;
+                }
+
+                if (routeTableWriter != null) {
+                    routeTableWriter.addRoute(url, getBinaryName(deepLinkElement));
+                } else {
+                    registerRoutesBuilder.addStatement(deeplinkFormat, url);
+                }
+
+                fragments.add(deepLinkElement);
+            }
+        }
+
+        if (routeTableWriter != null) {
+            // the fragment classes are loaded by name from the table and created through
+            // reflection, so that the size of the generated code does not grow with the routes
+            String resourceName = className + ROUTE_TABLE_EXTENSION;
+            writeRouteTable(packageName, resourceName, routeTableWriter, element);
+            writeKeepRules(packageName + "." + className, fragments, element);
+            classBuilder.addMethod(registerRoutesBuilder
+                    .addStatement(routeTableFormat, resourceName)
+                    .build());
+        } else {
+            classBuilder.addMethod(registerRoutesBuilder.build());
+            classBuilder.addMethod(generateLoadFragment(fragments));
+
+            MethodSpec newFragment = generateNewFragment(fragments);
+            if (newFragment != null) {
+                classBuilder.addMethod(newFragment);
+            }
+        }
+
+        if (generateMatcher) {
+            new DeepLinkMatcherGenerator(patterns).generate(classBuilder);
+        }
+
+        return classBuilder.build();
+    }
+
+    /**
+     * Build a registry class creating the route tables of the current module and of all
+     * the modules found on the class path, the current module coming first.
+     *
+     * @param className the name to be used for the registry class.
+     * @param element   the class annotated with the registry annotation.
+     * @return the registry class.
+     */
+    private TypeSpec buildRegistry(String className, Element element) {
+        List<ClassName> tables = new ArrayList<>();
+        if (routeTable != null) {
+            tables.add(routeTable);
+        }
+
+        PackageElement routesPackage = processingEnv.getElementUtils()
+                .getPackageElement(ROUTES_PACKAGE_NAME);
+
+        if (routesPackage != null) {
+            List<String> names = new ArrayList<>();
+            for (Element table : routesPackage.getEnclosedElements()) {
+                String name = table.getSimpleName().toString();
+                if (name.startsWith(ROUTE_TABLE_PREFIX)
+                        && (routeTable == null || !name.equals(routeTable.simpleName()))) {
+                    names.add(name);
+                }
+            }
+
+            Collections.sort(names);
+            for (String name : names) {
+                tables.add(ClassName.get(ROUTES_PACKAGE_NAME, name));
+            }
+        }
+
+        CodeBlock.Builder code = CodeBlock.builder()
+                .add("return new $T[] {\n", DEEP_LINK_HANDLER)
+                .indent();
+
+        for (int i = 0; i < tables.size(); i++) {
+            code.add("new $T()$L\n", tables.get(i), i < tables.size() - 1 ? "," : "");
+        }
+
+        code.unindent().add("};\n");
+
+        return TypeSpec.classBuilder(className)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addOriginatingElement(element)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("createHandlers")
+                        .addJavadoc("Create a deep link handler for each module of the "
+                                + "application.\n")
+                        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                        .returns(ArrayTypeName.of(DEEP_LINK_HANDLER))
+                        .addCode(code.build())
+                        .build())
+                .build();
+    }
+
     /**
-     * Create the JavaPoet Type builder for an AbstractFlowrDeepLinkHandler implementation class.
+     * Create the JavaPoet Type builder for an AbstractFlowrDeepLinkHandler implementation class,
+     * whose routes only depend on its class so that its index is shared by all the routers.
      *
      * @param className the name to be used for the implementation class.
      * @return The builder for the implementation class.
@@ -83,40 +387,276 @@ public class DeepLinkAnnotationCompiler extends AbstractProcessor {
     private static TypeSpec.Builder getClassObject(String className) {
         return TypeSpec.classBuilder(className)
                 .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-                .superclass(ClassName.get(FLOWR_INTERNAL_PACKAGE_NAME, ABSTRACT_HANDLER_CLASS_NAME));
+                .superclass(ClassName.get(FLOWR_INTERNAL_PACKAGE_NAME, ABSTRACT_HANDLER_CLASS_NAME))
+                .addMethod(MethodSpec.methodBuilder("hasStaticRoutes")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PROTECTED)
+                        .returns(boolean.class)
+                        .addStatement("return true")
+                        .build());
     }
 
     /**
-     * Create the constructor for deep link handler implementation class.
+     * Create the route registration method for deep link handler implementation class, routes are
+     * registered lazily so that creating a new handler instance stays cheap.
      *
-     * @return The Constructor JavaPoet object.
+     * @return The registerRoutes JavaPoet object.
      */
-    private static MethodSpec.Builder generateConstructor() {
-        return MethodSpec.constructorBuilder()
-                .addModifiers(Modifier.PUBLIC);
+    private static MethodSpec.Builder generateRegisterRoutes() {
+        return MethodSpec.methodBuilder("registerRoutes")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED);
     }
 
     /**
-     * Generate a new deep link handler implementation class with the specified package name,
-     * class name and the constructor body.
+     * Create the method returning the fragment class of each route, the fragment classes are then
+     * only loaded once a link matches one of their routes instead of when the routes are
+     * registered.
      *
-     * @param packageName        the name of the package to use for the generated class.
-     * @param className          the name to be used for the implementation class.
-     * @param constructorBuilder the constructor body builder for the class.
+     * @param fragments the fragment class of each route, in the order the routes are registered.
+     * @return The loadFragment JavaPoet object.
      */
-    private void generateDeepLinkHandler(String packageName, String className,
-                                         MethodSpec.Builder constructorBuilder) {
-        TypeSpec classObject = getClassObject(className)
-                .addMethod(constructorBuilder.build())
+    private static MethodSpec generateLoadFragment(List<TypeElement> fragments) {
+        Map<TypeElement, List<Integer>> routeIds = new LinkedHashMap<>();
+        for (int id = 0; id < fragments.size(); id++) {
+            List<Integer> ids = routeIds.get(fragments.get(id));
+            if (ids == null) {
+                ids = new ArrayList<>();
+                routeIds.put(fragments.get(id), ids);
+            }
+
+            ids.add(id);
+        }
+
+        CodeBlock.Builder code = CodeBlock.builder()
+                .add("switch (id) {\n")
+                .indent();
+
+        for (Map.Entry<TypeElement, List<Integer>> entry : routeIds.entrySet()) {
+            for (int id : entry.getValue()) {
+                code.add("case $L:\n", id);
+            }
+
+            code.indent()
+                    .addStatement("return $T.class", ClassName.get(entry.getKey()))
+                    .unindent();
+        }
+
+        code.add("default:\n").indent()
+                .addStatement("return super.loadFragment(id)")
+                .unindent()
+                .unindent()
+                .add("}\n");
+
+        return MethodSpec.methodBuilder("loadFragment")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(ParameterizedTypeName.get(ClassName.get(Class.class),
+                        WildcardTypeName.subtypeOf(Object.class)))
+                .addParameter(int.class, "id")
+                .addCode(code.build())
+                .build();
+    }
+
+    /**
+     * Create the method calling the constructor of the fragment classes, switching on the hash
+     * code of the class name so that the classes are not loaded to be compared. Fragments without
+     * a public constructor without parameters are left to reflection.
+     *
+     * @param fragments the fragment class of each route.
+     * @return The newFragment JavaPoet object, or null if no fragment can be created directly.
+     */
+    private MethodSpec generateNewFragment(List<TypeElement> fragments) {
+        Map<Integer, List<TypeElement>> fragmentsByHash = new LinkedHashMap<>();
+        Set<TypeElement> added = new HashSet<>();
+
+        for (TypeElement fragment : fragments) {
+            if (!isInstantiable(fragment) || !added.add(fragment)) {
+                continue;
+            }
+
+            int hash = getBinaryName(fragment).hashCode();
+            List<TypeElement> sameHash = fragmentsByHash.get(hash);
+            if (sameHash == null) {
+                sameHash = new ArrayList<>();
+                fragmentsByHash.put(hash, sameHash);
+            }
+
+            sameHash.add(fragment);
+        }
+
+        if (fragmentsByHash.isEmpty()) {
+            return null;
+        }
+
+        CodeBlock.Builder code = CodeBlock.builder()
+                .addStatement("$T name = fragment.getName()", String.class)
+                .add("switch (name.hashCode()) {\n")
+                .indent();
+
+        for (Map.Entry<Integer, List<TypeElement>> entry : fragmentsByHash.entrySet()) {
+            code.add("case $L:\n", entry.getKey()).indent();
+
+            for (TypeElement fragment : entry.getValue()) {
+                code.beginControlFlow("if (name.equals($S))", getBinaryName(fragment))
+                        .addStatement("return new $T()", ClassName.get(fragment))
+                        .endControlFlow();
+            }
+
+            code.addStatement("break")
+                    .unindent();
+        }
+
+        code.add("default:\n").indent()
+                .addStatement("break")
+                .unindent()
+                .unindent()
+                .add("}\n")
+                .addStatement("return super.newFragment(fragment)");
+
+        return MethodSpec.methodBuilder("newFragment")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(FRAGMENT)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class),
+                        WildcardTypeName.subtypeOf(Object.class)), "fragment")
+                .addCode(code.build())
                 .build();
+    }
 
+    private String getBinaryName(TypeElement element) {
+        return processingEnv.getElementUtils().getBinaryName(element).toString();
+    }
+
+    /**
+     * Check whether a fragment class can be created from the generated code, which requires
+     * the class and its enclosing classes to be public and a public constructor without
+     * parameters.
+     *
+     * @param fragment the fragment class.
+     * @return true if the fragment can be created through its constructor.
+     */
+    private static boolean isInstantiable(TypeElement fragment) {
+        if (fragment.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        Element element = fragment;
+        while (element instanceof TypeElement) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)
+                    || (element.getEnclosingElement() instanceof TypeElement
+                    && !element.getModifiers().contains(Modifier.STATIC))) {
+                return false;
+            }
+
+            element = element.getEnclosingElement();
+        }
+
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(fragment.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return constructor.getModifiers().contains(Modifier.PUBLIC);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Write a binary route table resource to the specified package.
+     *
+     * @param packageName  the package of the handler reading the table.
+     * @param resourceName the name of the resource.
+     * @param writer       the routes to write.
+     * @param element      the class annotated with the handler annotation, or null for
+     *                     a route table.
+     */
+    private void writeRouteTable(String packageName, String resourceName,
+                                 DeepLinkRouteTableWriter writer, Element element) {
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, packageName, resourceName,
+                    getOriginatingElements(element));
+
+            OutputStream output = resource.openOutputStream();
+            try {
+                writer.write(output);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + resourceName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the ProGuard rules keeping the fragments of a binary route table, which are loaded by
+     * name and created through reflection, along with the name of its handler next to which the
+     * table is read. The rules are written to {@value #KEEP_RULES_DIRECTORY} so that they are
+     * only applied to the applications using the binary route tables.
+     *
+     * @param handlerName the qualified name of the handler reading the route table.
+     * @param fragments   the fragment class of each route of the table.
+     * @param element     the class annotated with the handler annotation, or null for
+     *                    a route table.
+     */
+    private void writeKeepRules(String handlerName, List<TypeElement> fragments,
+                                Element element) {
+        String resourceName = KEEP_RULES_DIRECTORY + "flowr-" + handlerName + ".pro";
+        Set<String> fragmentNames = new LinkedHashSet<>();
+        for (TypeElement fragment : fragments) {
+            fragmentNames.add(getBinaryName(fragment));
+        }
+
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", resourceName,
+                    getOriginatingElements(element));
+
+            Writer writer = resource.openWriter();
+            try {
+                writer.write("-keepnames class " + handlerName + "\n");
+
+                for (String fragmentName : fragmentNames) {
+                    writer.write("-keep class " + fragmentName + " {\n"
+                            + "    public <init>();\n"
+                            + "}\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + resourceName + ": " + e.getMessage());
+        }
+    }
+
+    private Element[] getOriginatingElements(Element element) {
+        List<Element> originatingElements = new ArrayList<Element>(deepLinkElements);
+        if (element != null) {
+            originatingElements.add(element);
+        }
+
+        return originatingElements.toArray(new Element[originatingElements.size()]);
+    }
+
+    /**
+     * Write a new generated class to the specified package.
+     *
+     * @param packageName the name of the package to use for the generated class.
+     * @param classObject the class to write.
+     */
+    private void generateClass(String packageName, TypeSpec classObject) {
         JavaFile javaFile = JavaFile.builder(packageName, classObject)
                 .build();
 
         try {
             javaFile.writeTo(processingEnv.getFiler());
         } catch (IOException e) {
-            e.printStackTrace();
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + classObject.name + ": "
+                            + e.getMessage());
         }
     }
 }
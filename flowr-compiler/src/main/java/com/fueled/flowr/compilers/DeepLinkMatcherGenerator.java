@@ -0,0 +1,442 @@
+package com.fueled.flowr.compilers;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates the {@code findRoute} override of a deep link handler implementation class.
+ * <p/>
+ * The patterns are partitioned by the scheme and host they require, the same way as the runtime
+ * lookup. The partitions are checked from the most specific one. The static paths of a partition,
+ * made of literal segments only, are first looked up with a collision-free hash of the whole path,
+ * so that they are found with a single hash and comparison. Each partition then switches on
+ * the number of path segments, then on the hash code of each literal segment before comparing it
+ * in place, falling back to the path variable branches when no literal case matched. Segments are
+ * never extracted from the path so matching does not allocate.
+ * Typed path variables are tried from the most to the least restrictive type, then wildcards.
+ * The query constraints of the routes found at the end of the path are then checked from the most
+ * to the least specific route. The routes ending with a catch-all are only tried when no other
+ * route of the partition matched, from the deepest one in the path.
+ * The identifier returned for a route is its index in the list of patterns, path variables are
+ * then extracted by index by AbstractFlowrDeepLinkHandler.
+ */
+final class DeepLinkMatcherGenerator {
+
+    private static final String MATCH = "match";
+
+    /**
+     * The segment count of the catch-all routes, which match any number of segments.
+     */
+    private static final int ANY_COUNT = -1;
+    private static final String FLOWR_INTERNAL_PACKAGE_NAME = "com.fueled.flowr.internal";
+    private static final ClassName PARAM_TYPE = ClassName.get(FLOWR_INTERNAL_PACKAGE_NAME,
+            "DeepLinkParamType");
+    private static final ClassName DEEP_LINK_MATCH = ClassName.get(FLOWR_INTERNAL_PACKAGE_NAME,
+            "DeepLinkMatch");
+
+    private static final String PATH_DISPLACEMENTS = "PATH_DISPLACEMENTS_";
+    private static final String PATH_HASH = "pathHash";
+
+    private final List<DeepLinkPattern> patterns;
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();
+    private final List<FieldSpec> fields = new ArrayList<>();
+
+    /**
+     * @param patterns the patterns to match, in the same order as the addFragment calls.
+     */
+    DeepLinkMatcherGenerator(List<DeepLinkPattern> patterns) {
+        this.patterns = patterns;
+
+        for (int id = 0; id < patterns.size(); id++) {
+            add(id, patterns.get(id));
+        }
+    }
+
+    private void add(int id, DeepLinkPattern pattern) {
+        // schemes and hosts are compared ignoring case
+        String key = (pattern.scheme != null ? pattern.scheme.toLowerCase(Locale.US) : "*")
+                + "://" + (pattern.host != null ? pattern.host.toLowerCase(Locale.US) : "*");
+
+        Partition partition = partitions.get(key);
+        if (partition == null) {
+            partition = new Partition(pattern.scheme, pattern.host);
+            partitions.put(key, partition);
+        }
+
+        Node node;
+        if (pattern.catchAll) {
+            if (partition.catchAllRoot == null) {
+                partition.catchAllRoot = new Node();
+            }
+
+            node = partition.catchAllRoot;
+        } else {
+            node = partition.roots.get(pattern.segments.length);
+            if (node == null) {
+                node = new Node();
+                partition.roots.put(pattern.segments.length, node);
+            }
+        }
+
+        for (int i = 0; i < pattern.segments.length; i++) {
+            node = node.child(pattern.segments[i], pattern.types[i]);
+        }
+
+        // same order as the runtime lookup, the first of equally specific patterns wins
+        int position = 0;
+        while (position < node.routeIds.size()
+                && !pattern.isMoreSpecificThan(patterns.get(node.routeIds.get(position)))) {
+            position++;
+        }
+
+        node.routeIds.add(position, id);
+    }
+
+    /**
+     * Add the {@code findRoute} method and the tables it relies on to a handler class.
+     *
+     * @param classBuilder the builder of the handler class.
+     */
+    void generate(TypeSpec.Builder classBuilder) {
+        List<Partition> sortedPartitions = new ArrayList<>(partitions.values());
+        Collections.sort(sortedPartitions, new Comparator<Partition>() {
+            @Override
+            public int compare(Partition partition1, Partition partition2) {
+                return partition1.rank() - partition2.rank();
+            }
+        });
+
+        CodeBlock.Builder code = CodeBlock.builder();
+
+        for (Partition partition : sortedPartitions) {
+            if (partition.scheme != null && partition.host != null) {
+                code.beginControlFlow("if ($N.schemeEquals($S) && $N.hostEquals($S))", MATCH,
+                        partition.scheme, MATCH, partition.host);
+            } else if (partition.host != null) {
+                code.beginControlFlow("if ($N.hostEquals($S))", MATCH, partition.host);
+            } else if (partition.scheme != null) {
+                code.beginControlFlow("if ($N.schemeEquals($S))", MATCH, partition.scheme);
+            }
+
+            generatePartition(code, partition);
+
+            if (partition.scheme != null || partition.host != null) {
+                code.endControlFlow();
+            }
+        }
+
+        code.addStatement("return NO_ROUTE");
+
+        classBuilder.addFields(fields);
+        classBuilder.addMethod(MethodSpec.methodBuilder("findRoute")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(int.class)
+                .addParameter(DEEP_LINK_MATCH, MATCH)
+                .addCode(code.build())
+                .build());
+    }
+
+    /**
+     * Generate the code matching the paths of the routes of a partition, which completes normally
+     * when none of them matched.
+     */
+    private void generatePartition(CodeBlock.Builder code, Partition partition) {
+        Map<String, Node> staticPaths = new TreeMap<>();
+        for (Map.Entry<Integer, Node> entry : partition.roots.entrySet()) {
+            collectStaticPaths(entry.getValue(), 0, entry.getKey(), "", staticPaths);
+        }
+
+        if (staticPaths.size() == 1) {
+            Map.Entry<String, Node> entry = staticPaths.entrySet().iterator().next();
+            code.beginControlFlow("if ($N.pathEquals($S))", MATCH, entry.getKey());
+            generateRoutes(code, entry.getValue(), patterns);
+            code.endControlFlow();
+        } else if (staticPaths.size() > 1) {
+            generateStaticPaths(code, staticPaths);
+        }
+
+        if (!partition.roots.isEmpty()) {
+            code.add("switch ($N.segmentCount()) {\n", MATCH).indent();
+
+            for (Map.Entry<Integer, Node> entry : partition.roots.entrySet()) {
+                code.add("case $L:\n", entry.getKey()).indent();
+                if (generateNode(code, entry.getValue(), 0, entry.getKey(), patterns)) {
+                    code.addStatement("break");
+                }
+                code.unindent();
+            }
+
+            code.add("default:\n").indent()
+                    .addStatement("break")
+                    .unindent()
+                    .unindent()
+                    .add("}\n");
+        }
+
+        if (partition.catchAllRoot != null) {
+            generateNode(code, partition.catchAllRoot, 0, ANY_COUNT, patterns);
+        }
+    }
+
+    /**
+     * Collect the nodes reached from the specified node through literal segments only, keyed by
+     * their path, the routes of these nodes having static paths.
+     */
+    private static void collectStaticPaths(Node node, int index, int count, String path,
+                                           Map<String, Node> staticPaths) {
+        if (index == count) {
+            if (!node.routeIds.isEmpty()) {
+                staticPaths.put(path, node);
+            }
+
+            return;
+        }
+
+        for (Map.Entry<String, Node> entry : node.literals.entrySet()) {
+            collectStaticPaths(entry.getValue(), index + 1, count,
+                    index == 0 ? entry.getKey() : path + "/" + entry.getKey(), staticPaths);
+        }
+    }
+
+    /**
+     * Generate the lookup of the static paths of a partition, switching on their slot in
+     * a collision-free hash. The code completes normally when none of them matched.
+     */
+    private void generateStaticPaths(CodeBlock.Builder code, Map<String, Node> staticPaths) {
+        List<String> paths = new ArrayList<>(staticPaths.keySet());
+        DeepLinkPathHash hash = DeepLinkPathHash.build(paths);
+
+        Map<Integer, String> pathsBySlot = new TreeMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            // without buckets the displacement does not change which paths share a slot
+            int slot = hash.bucketMask == 0
+                    ? DeepLinkPathHash.hash(paths.get(i), hash.seed) & hash.slotMask
+                    : hash.slots[i];
+            pathsBySlot.put(slot, paths.get(i));
+        }
+
+        if (hash.bucketMask == 0) {
+            code.add("switch ($N.pathHash($L) & $L) {\n", MATCH, hash.seed, hash.slotMask);
+        } else {
+            String displacements = PATH_DISPLACEMENTS + fields.size();
+            CodeBlock.Builder values = CodeBlock.builder().add("{");
+            for (int i = 0; i < hash.displacements.length; i++) {
+                values.add(i > 0 ? ", $L" : "$L", hash.displacements[i]);
+            }
+
+            fields.add(FieldSpec.builder(int[].class, displacements)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer(values.add("}").build())
+                    .build());
+
+            code.addStatement("int $N = $N.pathHash($L)", PATH_HASH, MATCH, hash.seed)
+                    .add("switch (($N ^ $N[($N >>> 16) & $L]) & $L) {\n", PATH_HASH,
+                            displacements, PATH_HASH, hash.bucketMask, hash.slotMask);
+        }
+
+        code.indent();
+
+        for (Map.Entry<Integer, String> entry : pathsBySlot.entrySet()) {
+            code.add("case $L:\n", entry.getKey()).indent()
+                    .beginControlFlow("if ($N.pathEquals($S))", MATCH, entry.getValue());
+            generateRoutes(code, staticPaths.get(entry.getValue()), patterns);
+            code.endControlFlow()
+                    .addStatement("break")
+                    .unindent();
+        }
+
+        code.add("default:\n").indent()
+                .addStatement("break")
+                .unindent()
+                .unindent()
+                .add("}\n");
+    }
+
+    /**
+     * Generate the code matching the segments below the specified node.
+     *
+     * @param count the number of segments of the routes, or {@link #ANY_COUNT} for the
+     *              catch-all routes.
+     * @return true if the generated code can complete normally, meaning no route was found.
+     */
+    private static boolean generateNode(CodeBlock.Builder code, Node node, int index, int count,
+                                        List<DeepLinkPattern> patterns) {
+        if (index == count) {
+            return generateRoutes(code, node, patterns);
+        }
+
+        if (count != ANY_COUNT) {
+            return generateChildren(code, node, index, count, patterns);
+        }
+
+        // the deeper catch-all routes are tried first, as long as the link has more segments
+        if (node.hasChildren()) {
+            code.beginControlFlow("if ($N.segmentCount() > $L)", MATCH, index);
+            generateChildren(code, node, index, count, patterns);
+            code.endControlFlow();
+        }
+
+        return generateRoutes(code, node, patterns);
+    }
+
+    /**
+     * Generate the code checking the routes kept by a node, from the most to the least specific.
+     *
+     * @return true if the generated code can complete normally, meaning no route was found.
+     */
+    private static boolean generateRoutes(CodeBlock.Builder code, Node node,
+                                          List<DeepLinkPattern> patterns) {
+        // the scheme and host were checked with the partition
+        for (int routeId : node.routeIds) {
+            if (patterns.get(routeId).queryKeys.isEmpty()) {
+                code.addStatement("return $L", routeId);
+                return false;
+            }
+
+            code.beginControlFlow("if (matchesRoute($N, $L))", MATCH, routeId)
+                    .addStatement("return $L", routeId)
+                    .endControlFlow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Generate the code matching the segment at the specified position against the children
+     * of a node: literals first, then path variables, then the wildcard.
+     *
+     * @return true if the generated code can complete normally, meaning no route was found.
+     */
+    private static boolean generateChildren(CodeBlock.Builder code, Node node, int index,
+                                            int count, List<DeepLinkPattern> patterns) {
+        if (!node.literals.isEmpty()) {
+            // String.hashCode() is specified, so it is the same at compile time and at runtime
+            Map<Integer, List<String>> literalsByHash = new LinkedHashMap<>();
+            for (String literal : node.literals.keySet()) {
+                List<String> literals = literalsByHash.get(literal.hashCode());
+                if (literals == null) {
+                    literals = new ArrayList<>();
+                    literalsByHash.put(literal.hashCode(), literals);
+                }
+
+                literals.add(literal);
+            }
+
+            code.add("switch ($N.segmentHash($L)) {\n", MATCH, index).indent();
+
+            for (Map.Entry<Integer, List<String>> entry : literalsByHash.entrySet()) {
+                code.add("case $L:\n", entry.getKey()).indent();
+
+                for (String literal : entry.getValue()) {
+                    code.beginControlFlow("if ($N.segmentEquals($L, $S))", MATCH, index, literal);
+                    generateNode(code, node.literals.get(literal), index + 1, count, patterns);
+                    code.endControlFlow();
+                }
+
+                code.addStatement("break")
+                        .unindent();
+            }
+
+            code.add("default:\n").indent()
+                    .addStatement("break")
+                    .unindent()
+                    .unindent()
+                    .add("}\n");
+        }
+
+        for (Map.Entry<String, Node> entry : node.params.entrySet()) {
+            if (DeepLinkPattern.DEFAULT_PARAM_TYPE.equals(entry.getKey())) {
+                // strings accept any segment and are tried after the other types
+                if (!generateNode(code, entry.getValue(), index + 1, count, patterns)) {
+                    return false;
+                }
+
+                continue;
+            }
+
+            code.beginControlFlow("if ($N.segmentAccepts($L, $T.$L))", MATCH, index, PARAM_TYPE,
+                    entry.getKey().toUpperCase(Locale.US));
+            generateNode(code, entry.getValue(), index + 1, count, patterns);
+            code.endControlFlow();
+        }
+
+        // wildcards accept any segment and are always tried last
+        return node.wildcard == null
+                || generateNode(code, node.wildcard, index + 1, count, patterns);
+    }
+
+    private static final class Partition {
+
+        private final String scheme;
+        private final String host;
+        private final Map<Integer, Node> roots = new TreeMap<>();
+        private Node catchAllRoot;
+
+        private Partition(String scheme, String host) {
+            this.scheme = scheme;
+            this.host = host;
+        }
+
+        /**
+         * Returns the position of the partition in the lookup order: the scheme and host
+         * of the link, then its host, then its scheme, then any link.
+         */
+        private int rank() {
+            return (host != null ? 0 : 2) + (scheme != null ? 0 : 1);
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> literals = new LinkedHashMap<>();
+        private final Map<String, Node> params = new TreeMap<>(new Comparator<String>() {
+            @Override
+            public int compare(String type1, String type2) {
+                return DeepLinkPattern.PARAM_TYPES.indexOf(type1)
+                        - DeepLinkPattern.PARAM_TYPES.indexOf(type2);
+            }
+        });
+        private final List<Integer> routeIds = new ArrayList<>(1);
+        private Node wildcard;
+
+        private boolean hasChildren() {
+            return !literals.isEmpty() || !params.isEmpty() || wildcard != null;
+        }
+
+        private Node child(String segment, String type) {
+            if (DeepLinkPattern.WILDCARD.equals(segment)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+
+                return wildcard;
+            }
+
+            Map<String, Node> children = segment == null ? params : literals;
+            String key = segment == null ? type : segment;
+
+            Node child = children.get(key);
+            if (child == null) {
+                child = new Node();
+                children.put(key, child);
+            }
+
+            return child;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.fueled.flowr.compilers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collision-free hash of a set of static paths, each of them getting its own slot in a table
+ * at least twice as large as the set.
+ * <p/>
+ * A path is hashed with the seed the same way as DeepLinkMatch.pathHash(int) at runtime, the bits
+ * above the 16th of the hash then select a bucket and the slot of the path is given by the lower
+ * bits of the hash xor the displacement of its bucket. The seed and the displacements are searched
+ * at compile time, from the largest bucket to the smallest one, until every path has a free slot.
+ */
+final class DeepLinkPathHash {
+
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private static final int MAX_SEEDS = 1024;
+    private static final int PATHS_PER_BUCKET = 4;
+
+    final int seed;
+    final int slotMask;
+    final int bucketMask;
+
+    /**
+     * The displacement of each bucket.
+     */
+    final int[] displacements;
+
+    /**
+     * The slot of each path.
+     */
+    final int[] slots;
+
+    private DeepLinkPathHash(int seed, int slotMask, int bucketMask, int[] displacements,
+                             int[] slots) {
+        this.seed = seed;
+        this.slotMask = slotMask;
+        this.bucketMask = bucketMask;
+        this.displacements = displacements;
+        this.slots = slots;
+    }
+
+    /**
+     * Hash a path the same way as DeepLinkMatch.pathHash(int): 32-bit FNV-1a over the UTF-16
+     * characters starting from the seed xor the FNV offset basis, with the upper half of the result
+     * then folded into the lower half.
+     *
+     * @param path the path segments joined by {@code /}.
+     * @param seed the seed of the hash.
+     * @return the hash of the path.
+     */
+    static int hash(String path, int seed) {
+        int hash = seed ^ FNV_OFFSET_BASIS;
+        for (int i = 0; i < path.length(); i++) {
+            hash = (hash ^ path.charAt(i)) * FNV_PRIME;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Find a collision-free hash for the specified paths.
+     *
+     * @param paths the distinct paths to hash.
+     * @return the hash of the paths.
+     */
+    static DeepLinkPathHash build(List<String> paths) {
+        int bucketCount = Integer.highestOneBit(Math.max(1, paths.size() / PATHS_PER_BUCKET));
+
+        for (int slotCount = Integer.highestOneBit(Math.max(1, paths.size() * 2 - 1)) * 2; ;
+             slotCount *= 2) {
+            for (int seed = 0; seed < MAX_SEEDS; seed++) {
+                DeepLinkPathHash hash = build(paths, seed, slotCount, bucketCount);
+                if (hash != null) {
+                    return hash;
+                }
+            }
+        }
+    }
+
+    private static DeepLinkPathHash build(List<String> paths, int seed, int slotCount,
+                                          int bucketCount) {
+        final int[] hashes = new int[paths.size()];
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(paths.get(i), seed);
+            buckets.get((hashes[i] >>> 16) & (bucketCount - 1)).add(i);
+        }
+
+        List<Integer> bucketOrder = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            bucketOrder.add(i);
+        }
+
+        final List<List<Integer>> sortedBuckets = buckets;
+        Collections.sort(bucketOrder, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer bucket1, Integer bucket2) {
+                return sortedBuckets.get(bucket2).size() - sortedBuckets.get(bucket1).size();
+            }
+        });
+
+        boolean[] used = new boolean[slotCount];
+        int[] displacements = new int[bucketCount];
+        int[] slots = new int[hashes.length];
+
+        for (int bucket : bucketOrder) {
+            List<Integer> ids = buckets.get(bucket);
+            int displacement = findDisplacement(ids, hashes, used);
+            if (displacement < 0) {
+                return null;
+            }
+
+            displacements[bucket] = displacement;
+            for (int id : ids) {
+                slots[id] = (hashes[id] ^ displacement) & (slotCount - 1);
+                used[slots[id]] = true;
+            }
+        }
+
+        return new DeepLinkPathHash(seed, slotCount - 1, bucketCount - 1, displacements, slots);
+    }
+
+    /**
+     * Find the displacement moving all the paths of a bucket to free slots.
+     *
+     * @return the displacement, or -1 if there is none.
+     */
+    private static int findDisplacement(List<Integer> ids, int[] hashes, boolean[] used) {
+        int[] bucketSlots = new int[ids.size()];
+
+        for (int displacement = 0; displacement < used.length; displacement++) {
+            boolean free = true;
+
+            for (int i = 0; free && i < ids.size(); i++) {
+                bucketSlots[i] = (hashes[ids.get(i)] ^ displacement) & (used.length - 1);
+                free = !used[bucketSlots[i]];
+
+                // buckets are small, so the paths of the bucket are compared one by one
+                for (int j = 0; free && j < i; j++) {
+                    free = bucketSlots[j] != bucketSlots[i];
+                }
+            }
+
+            if (free) {
+                return displacement;
+            }
+        }
+
+        return -1;
+    }
+}
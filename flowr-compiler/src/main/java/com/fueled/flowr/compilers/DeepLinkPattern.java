@@ -0,0 +1,309 @@
+package com.fueled.flowr.compilers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link com.fueled.flowr.annotations.DeepLink} URL pattern split into its scheme, host,
+ * path segments and query keys, parsed the same way AbstractFlowrDeepLinkHandler parses
+ * the patterns it is given at runtime.
+ */
+final class DeepLinkPattern {
+
+    private static final char PARAM_START = '{';
+    private static final char PARAM_END = '}';
+    private static final char PARAM_TYPE_SEPARATOR = ':';
+    private static final char QUERY_START = '?';
+    private static final char QUERY_SEPARATOR = '&';
+    private static final char OPTIONAL_QUERY_KEY = '?';
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String ANY = "*";
+    private static final char WILDCARD_CHAR = '*';
+
+    /**
+     * The segment matching any single path segment.
+     */
+    static final String WILDCARD = "*";
+
+    /**
+     * The last segment matching any number of path segments, including none.
+     */
+    static final String CATCH_ALL = "**";
+
+    /**
+     * The names of the path variable types, from the most to the least restrictive, matching
+     * the constants of the DeepLinkParamType enum.
+     */
+    static final List<String> PARAM_TYPES = Arrays.asList("boolean", "int", "long", "float",
+            "double", "string");
+
+    static final String DEFAULT_PARAM_TYPE = "string";
+
+    final String url;
+
+    /**
+     * The scheme links must have, or null if any scheme is accepted.
+     */
+    final String scheme;
+
+    /**
+     * The host links must have, or null if any host is accepted.
+     */
+    final String host;
+
+    /**
+     * The literal value of each path segment, {@link #WILDCARD} for a wildcard, or null when
+     * the segment is a named path variable. A trailing {@link #CATCH_ALL} is not included.
+     */
+    final String[] segments;
+
+    /**
+     * Whether the pattern ends with {@link #CATCH_ALL}.
+     */
+    final boolean catchAll;
+
+    /**
+     * The type name of each path segment, or null when the segment is a literal.
+     */
+    final String[] types;
+
+    /**
+     * The query keys links must have, including the optional ones.
+     */
+    final List<String> queryKeys;
+
+    private final int requiredQueryCount;
+
+    private DeepLinkPattern(String url, String scheme, String host, String[] segments,
+                            boolean catchAll, String[] types, List<String> queryKeys,
+                            int requiredQueryCount) {
+        this.url = url;
+        this.scheme = scheme;
+        this.host = host;
+        this.segments = segments;
+        this.catchAll = catchAll;
+        this.types = types;
+        this.queryKeys = queryKeys;
+        this.requiredQueryCount = requiredQueryCount;
+    }
+
+    /**
+     * Build the URL pattern given to AbstractFlowrDeepLinkHandler from the attributes of
+     * a {@link com.fueled.flowr.annotations.DeepLink} annotation.
+     *
+     * @param scheme the scheme links must have, empty for any scheme.
+     * @param host   the host links must have, empty for any host.
+     * @param path   the path pattern, which may also declare the scheme, host and query.
+     * @param query  the query keys links must have.
+     * @return the complete URL pattern.
+     * @throws IllegalArgumentException if the scheme or host is declared twice.
+     */
+    static String compose(String scheme, String host, String path, String[] query) {
+        StringBuilder url = new StringBuilder();
+
+        if (!scheme.isEmpty() || !host.isEmpty()) {
+            if (path.contains(SCHEME_SEPARATOR)) {
+                throw new IllegalArgumentException("The scheme and host are already declared in: "
+                        + path);
+            }
+
+            url.append(scheme.isEmpty() ? ANY : scheme)
+                    .append(SCHEME_SEPARATOR)
+                    .append(host.isEmpty() ? ANY : host);
+
+            if (!path.isEmpty() && path.charAt(0) != '/') {
+                url.append('/');
+            }
+        }
+
+        url.append(path);
+
+        for (String key : query) {
+            url.append(url.indexOf(String.valueOf(QUERY_START)) < 0 ? QUERY_START : QUERY_SEPARATOR)
+                    .append(key);
+        }
+
+        return url.toString();
+    }
+
+    /**
+     * Parse a URL pattern such as {@code /m/{id}/details}, {@code /order/{id:long}},
+     * {@code /help/**} or {@code https://fueled.com/search?q&page?}.
+     *
+     * @param url the URL pattern to parse.
+     * @return the parsed pattern.
+     * @throws IllegalArgumentException if the pattern contains a malformed path variable,
+     *                                  a path variable with an unknown type, a misplaced wildcard
+     *                                  or an invalid query key.
+     */
+    static DeepLinkPattern parse(String url) {
+        String scheme = null;
+        String host = null;
+        String path = url;
+
+        int schemeEnd = url.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd >= 0) {
+            int hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+            int hostEnd = hostStart;
+            while (hostEnd < url.length() && url.charAt(hostEnd) != '/'
+                    && url.charAt(hostEnd) != QUERY_START) {
+                hostEnd++;
+            }
+
+            scheme = anyIfEmpty(url.substring(0, schemeEnd));
+            host = anyIfEmpty(url.substring(hostStart, hostEnd));
+            path = url.substring(hostEnd);
+        }
+
+        String query = "";
+        int queryStart = path.indexOf(QUERY_START);
+        if (queryStart >= 0) {
+            query = path.substring(queryStart + 1);
+            path = path.substring(0, queryStart);
+        }
+
+        List<String> parts = splitPath(path);
+        boolean catchAll = !parts.isEmpty() && CATCH_ALL.equals(parts.get(parts.size() - 1));
+        if (catchAll) {
+            parts.remove(parts.size() - 1);
+        }
+
+        String[] segments = new String[parts.size()];
+        String[] types = new String[parts.size()];
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < segments.length; i++) {
+            String part = parts.get(i);
+
+            if (part.charAt(0) == PARAM_START && part.charAt(part.length() - 1) == PARAM_END) {
+                String name = part.substring(1, part.length() - 1);
+                types[i] = DEFAULT_PARAM_TYPE;
+
+                int separator = name.indexOf(PARAM_TYPE_SEPARATOR);
+                if (separator >= 0) {
+                    types[i] = name.substring(separator + 1);
+                    name = name.substring(0, separator);
+
+                    if (!PARAM_TYPES.contains(types[i])) {
+                        throw new IllegalArgumentException("Unknown type '" + types[i]
+                                + "' for path variable '" + name + "', expected one of "
+                                + PARAM_TYPES + " in: " + url);
+                    }
+                }
+
+                checkParamName(url, name);
+                if (names.contains(name)) {
+                    throw new IllegalArgumentException("Duplicate path variable '" + name + "' in: "
+                            + url);
+                }
+
+                names.add(name);
+            } else if (part.indexOf(PARAM_START) >= 0 || part.indexOf(PARAM_END) >= 0) {
+                throw new IllegalArgumentException("Path variables must span a whole path segment: "
+                        + url);
+            } else if (CATCH_ALL.equals(part)) {
+                throw new IllegalArgumentException("'" + CATCH_ALL + "' must be the last path "
+                        + "segment: " + url);
+            } else if (!WILDCARD.equals(part) && part.indexOf(WILDCARD_CHAR) >= 0) {
+                throw new IllegalArgumentException("Wildcards must span a whole path segment: "
+                        + url);
+            } else {
+                segments[i] = part;
+            }
+        }
+
+        List<String> queryKeys = new ArrayList<>();
+        int requiredQueryCount = 0;
+
+        for (String key : query.split(String.valueOf(QUERY_SEPARATOR))) {
+            if (key.isEmpty()) {
+                continue;
+            }
+
+            boolean optional = key.charAt(key.length() - 1) == OPTIONAL_QUERY_KEY;
+            if (optional) {
+                key = key.substring(0, key.length() - 1);
+            }
+
+            if (key.isEmpty() || key.indexOf('=') >= 0 || key.indexOf(PARAM_START) >= 0
+                    || key.indexOf(PARAM_END) >= 0 || key.indexOf(OPTIONAL_QUERY_KEY) >= 0) {
+                throw new IllegalArgumentException("Invalid query key '" + key + "' in: " + url);
+            }
+
+            if (names.contains(key)) {
+                throw new IllegalArgumentException("Duplicate variable '" + key + "' in: " + url);
+            }
+
+            names.add(key);
+            queryKeys.add(key);
+            requiredQueryCount += optional ? 0 : 1;
+        }
+
+        return new DeepLinkPattern(url, scheme, host, segments, catchAll, types, queryKeys,
+                requiredQueryCount);
+    }
+
+    private static String anyIfEmpty(String value) {
+        return value.isEmpty() || ANY.equals(value) ? null : value;
+    }
+
+    /**
+     * Whether this pattern should be checked before another pattern with the same path shape,
+     * in the same order as the runtime lookup: patterns requiring a host come first, then
+     * patterns requiring a scheme, then patterns requiring the most query keys.
+     *
+     * @param other the pattern with the same path shape.
+     * @return true if this pattern is more specific than the other one.
+     */
+    boolean isMoreSpecificThan(DeepLinkPattern other) {
+        if ((host != null) != (other.host != null)) {
+            return host != null;
+        }
+
+        if ((scheme != null) != (other.scheme != null)) {
+            return scheme != null;
+        }
+
+        return requiredQueryCount > other.requiredQueryCount;
+    }
+
+    private static List<String> splitPath(String path) {
+        List<String> segments = new ArrayList<>();
+        int length = path.length();
+        int start = 0;
+
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+
+            start = end + 1;
+        }
+
+        return segments;
+    }
+
+    private static void checkParamName(String url, String name) {
+        boolean valid = !name.isEmpty() && isLetter(name.charAt(0));
+
+        for (int i = 1; valid && i < name.length(); i++) {
+            char c = name.charAt(i);
+            valid = isLetter(c) || (c >= '0' && c <= '9');
+        }
+
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid path variable name '" + name + "' in: "
+                    + url);
+        }
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
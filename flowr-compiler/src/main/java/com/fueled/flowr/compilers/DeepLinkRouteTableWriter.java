@@ -0,0 +1,77 @@
+package com.fueled.flowr.compilers;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Writes the binary route table read at runtime by AbstractFlowrDeepLinkHandler, in the format
+ * documented by DeepLinkRouteTable: a sorted string table where each string only keeps what
+ * follows the prefix it shares with the previous one, then the positions of the URL pattern and
+ * of the fragment class name of each route in the string table.
+ */
+final class DeepLinkRouteTableWriter {
+
+    private static final int MAGIC = 0x464c5752;
+    private static final int VERSION = 1;
+
+    private final List<String> patterns = new ArrayList<>();
+    private final List<String> fragmentNames = new ArrayList<>();
+
+    /**
+     * Add a route to the table, routes are identified by the order in which they are added.
+     *
+     * @param pattern      the URL pattern of the route.
+     * @param fragmentName the binary name of the fragment class of the route.
+     */
+    void addRoute(String pattern, String fragmentName) {
+        patterns.add(pattern);
+        fragmentNames.add(fragmentName);
+    }
+
+    /**
+     * Write the table, the stream is not closed.
+     *
+     * @param output the stream to write the table to.
+     * @throws IOException if the table could not be written.
+     */
+    void write(OutputStream output) throws IOException {
+        TreeSet<String> strings = new TreeSet<>(patterns);
+        strings.addAll(fragmentNames);
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(strings.size());
+
+        Map<String, Integer> positions = new HashMap<>();
+        String previous = "";
+
+        for (String string : strings) {
+            int sharedLength = 0;
+            int maxLength = Math.min(Math.min(previous.length(), string.length()), 0xffff);
+            while (sharedLength < maxLength
+                    && previous.charAt(sharedLength) == string.charAt(sharedLength)) {
+                sharedLength++;
+            }
+
+            data.writeShort(sharedLength);
+            data.writeUTF(string.substring(sharedLength));
+            positions.put(string, positions.size());
+            previous = string;
+        }
+
+        data.writeInt(patterns.size());
+        for (int i = 0; i < patterns.size(); i++) {
+            data.writeInt(positions.get(patterns.get(i)));
+            data.writeInt(positions.get(fragmentNames.get(i)));
+        }
+
+        data.flush();
+    }
+}
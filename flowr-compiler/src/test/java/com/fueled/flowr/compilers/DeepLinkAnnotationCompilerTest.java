@@ -1,15 +1,20 @@
 package com.fueled.flowr.compilers;
 
+import com.google.testing.compile.Compilation;
 import com.google.testing.compile.JavaFileObjects;
 
 import org.junit.Test;
 
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.Compiler.javac;
 import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+import static org.junit.Assert.assertEquals;
 
 /**
  * Created by julienFueled on 5/25/17.
@@ -35,13 +40,599 @@ public class DeepLinkAnnotationCompilerTest {
 
     private static final JavaFileObject TEST_DEEP_GENERATED_HANDLER = JavaFileObjects
             .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
                     "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
                     "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
-                    "  public TestDeepLinkHandlerImpl() {\n" +
-                    "    addFragment(\"/test\", HomeFragment.class);\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
                     "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/test\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "        return HomeFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case -40850115:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.HomeFragment\")) {\n" +
+                    "          return new HomeFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_BINARY_GENERATED_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import java.lang.Override;\n" +
+                    "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRouteTable(\"TestDeepLinkHandlerImpl.routes\");\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_MATCHER_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("DetailsFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/m/{id}\", \"/m/new\", \"/m/{id}/details\"})\n" +
+                    "public class DetailsFragment extends AbstractFlowrFragment {\n" +
                     "}");
 
+    private static final JavaFileObject TEST_MATCHER_DEEP_LINK_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandler", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.annotations.DeepLinkHandler;\n" +
+                    "@DeepLinkHandler(generateMatcher = true)\n" +
+                    "public interface TestDeepLinkHandler {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_MATCHER_GENERATED_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.internal.DeepLinkMatch;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
+                    "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/m/{id}\");\n" +
+                    "    addRoute(\"/m/new\");\n" +
+                    "    addRoute(\"/m/{id}/details\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "      case 1:\n" +
+                    "      case 2:\n" +
+                    "        return DetailsFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case 2139309828:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.DetailsFragment\")) {\n" +
+                    "          return new DetailsFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected int findRoute(DeepLinkMatch match) {\n" +
+                    "    if (match.pathEquals(\"m/new\")) {\n" +
+                    "      return 1;\n" +
+                    "    }\n" +
+                    "    switch (match.segmentCount()) {\n" +
+                    "      case 2:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case 109:\n" +
+                    "            if (match.segmentEquals(0, \"m\")) {\n" +
+                    "              switch (match.segmentHash(1)) {\n" +
+                    "                case 108960:\n" +
+                    "                  if (match.segmentEquals(1, \"new\")) {\n" +
+                    "                    return 1;\n" +
+                    "                  }\n" +
+                    "                  break;\n" +
+                    "                default:\n" +
+                    "                  break;\n" +
+                    "              }\n" +
+                    "              return 0;\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      case 3:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case 109:\n" +
+                    "            if (match.segmentEquals(0, \"m\")) {\n" +
+                    "              switch (match.segmentHash(2)) {\n" +
+                    "                case 1557721666:\n" +
+                    "                  if (match.segmentEquals(2, \"details\")) {\n" +
+                    "                    return 2;\n" +
+                    "                  }\n" +
+                    "                  break;\n" +
+                    "                default:\n" +
+                    "                  break;\n" +
+                    "              }\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return NO_ROUTE;\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_INVALID_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("InvalidFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/m/{id}-details\"})\n" +
+                    "public class InvalidFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_STATIC_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("SettingsFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/settings\", \"/settings/account\", \"/settings/privacy\",\n" +
+                    "        \"/settings/notifications\", \"/settings/about\", \"/help\", \"/help/faq\",\n" +
+                    "        \"/help/contact\", \"/terms\", \"/privacy\", \"/about\", \"/about/team\",\n" +
+                    "        \"/settings/{section}\"})\n" +
+                    "public class SettingsFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_TYPED_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("OrderFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/order/{slug}\", \"/order/{id:long}\"})\n" +
+                    "public class OrderFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_TYPED_GENERATED_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.internal.DeepLinkMatch;\n" +
+                    "import com.fueled.flowr.internal.DeepLinkParamType;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
+                    "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/order/{slug}\");\n" +
+                    "    addRoute(\"/order/{id:long}\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "      case 1:\n" +
+                    "        return OrderFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case 787479696:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.OrderFragment\")) {\n" +
+                    "          return new OrderFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected int findRoute(DeepLinkMatch match) {\n" +
+                    "    switch (match.segmentCount()) {\n" +
+                    "      case 2:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case 106006350:\n" +
+                    "            if (match.segmentEquals(0, \"order\")) {\n" +
+                    "              if (match.segmentAccepts(1, DeepLinkParamType.LONG)) {\n" +
+                    "                return 1;\n" +
+                    "              }\n" +
+                    "              return 0;\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return NO_ROUTE;\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_QUERY_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("SearchFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/search\"}, host = \"fueled.com\", query = {\"q\", \"page?\"})\n" +
+                    "public class SearchFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_QUERY_FALLBACK_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("HomeFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/search\", \"https://*/search?q\"})\n" +
+                    "public class HomeFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_QUERY_GENERATED_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.internal.DeepLinkMatch;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
+                    "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/search\");\n" +
+                    "    addRoute(\"https://*/search?q\");\n" +
+                    "    addRoute(\"*://fueled.com/search?q&page?\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "      case 1:\n" +
+                    "        return HomeFragment.class;\n" +
+                    "      case 2:\n" +
+                    "        return SearchFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case -40850115:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.HomeFragment\")) {\n" +
+                    "          return new HomeFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      case -1858551418:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.SearchFragment\")) {\n" +
+                    "          return new SearchFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected int findRoute(DeepLinkMatch match) {\n" +
+                    "    if (match.hostEquals(\"fueled.com\")) {\n" +
+                    "      if (match.pathEquals(\"search\")) {\n" +
+                    "        if (matchesRoute(match, 2)) {\n" +
+                    "          return 2;\n" +
+                    "        }\n" +
+                    "      }\n" +
+                    "      switch (match.segmentCount()) {\n" +
+                    "        case 1:\n" +
+                    "          switch (match.segmentHash(0)) {\n" +
+                    "            case -906336856:\n" +
+                    "              if (match.segmentEquals(0, \"search\")) {\n" +
+                    "                if (matchesRoute(match, 2)) {\n" +
+                    "                  return 2;\n" +
+                    "                }\n" +
+                    "              }\n" +
+                    "              break;\n" +
+                    "            default:\n" +
+                    "              break;\n" +
+                    "          }\n" +
+                    "          break;\n" +
+                    "        default:\n" +
+                    "          break;\n" +
+                    "      }\n" +
+                    "    }\n" +
+                    "    if (match.schemeEquals(\"https\")) {\n" +
+                    "      if (match.pathEquals(\"search\")) {\n" +
+                    "        if (matchesRoute(match, 1)) {\n" +
+                    "          return 1;\n" +
+                    "        }\n" +
+                    "      }\n" +
+                    "      switch (match.segmentCount()) {\n" +
+                    "        case 1:\n" +
+                    "          switch (match.segmentHash(0)) {\n" +
+                    "            case -906336856:\n" +
+                    "              if (match.segmentEquals(0, \"search\")) {\n" +
+                    "                if (matchesRoute(match, 1)) {\n" +
+                    "                  return 1;\n" +
+                    "                }\n" +
+                    "              }\n" +
+                    "              break;\n" +
+                    "            default:\n" +
+                    "              break;\n" +
+                    "          }\n" +
+                    "          break;\n" +
+                    "        default:\n" +
+                    "          break;\n" +
+                    "      }\n" +
+                    "    }\n" +
+                    "    if (match.pathEquals(\"search\")) {\n" +
+                    "      return 0;\n" +
+                    "    }\n" +
+                    "    switch (match.segmentCount()) {\n" +
+                    "      case 1:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case -906336856:\n" +
+                    "            if (match.segmentEquals(0, \"search\")) {\n" +
+                    "              return 0;\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return NO_ROUTE;\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_WILDCARD_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("HelpFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/help/**\", \"/help/contact\", \"/cms/{slug}/*\"})\n" +
+                    "public class HelpFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_WILDCARD_GENERATED_HANDLER = JavaFileObjects
+            .forSourceString("TestDeepLinkHandlerImpl", "package com.fueled.flowr.sample;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.internal.DeepLinkMatch;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
+                    "public final class TestDeepLinkHandlerImpl extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/help/**\");\n" +
+                    "    addRoute(\"/help/contact\");\n" +
+                    "    addRoute(\"/cms/{slug}/*\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "      case 1:\n" +
+                    "      case 2:\n" +
+                    "        return HelpFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case -1756822113:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.HelpFragment\")) {\n" +
+                    "          return new HelpFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected int findRoute(DeepLinkMatch match) {\n" +
+                    "    if (match.pathEquals(\"help/contact\")) {\n" +
+                    "      return 1;\n" +
+                    "    }\n" +
+                    "    switch (match.segmentCount()) {\n" +
+                    "      case 2:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case 3198785:\n" +
+                    "            if (match.segmentEquals(0, \"help\")) {\n" +
+                    "              switch (match.segmentHash(1)) {\n" +
+                    "                case 951526432:\n" +
+                    "                  if (match.segmentEquals(1, \"contact\")) {\n" +
+                    "                    return 1;\n" +
+                    "                  }\n" +
+                    "                  break;\n" +
+                    "                default:\n" +
+                    "                  break;\n" +
+                    "              }\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      case 3:\n" +
+                    "        switch (match.segmentHash(0)) {\n" +
+                    "          case 98633:\n" +
+                    "            if (match.segmentEquals(0, \"cms\")) {\n" +
+                    "              return 2;\n" +
+                    "            }\n" +
+                    "            break;\n" +
+                    "          default:\n" +
+                    "            break;\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    if (match.segmentCount() > 0) {\n" +
+                    "      switch (match.segmentHash(0)) {\n" +
+                    "        case 3198785:\n" +
+                    "          if (match.segmentEquals(0, \"help\")) {\n" +
+                    "            return 0;\n" +
+                    "          }\n" +
+                    "          break;\n" +
+                    "        default:\n" +
+                    "          break;\n" +
+                    "      }\n" +
+                    "    }\n" +
+                    "    return NO_ROUTE;\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_OTHER_PACKAGE_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("OtherFragment", "package org.example;\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/other\"})\n" +
+                    "public class OtherFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_UNKNOWN_TYPE_DEEP_LINK_FRAGMENT = JavaFileObjects
+            .forSourceString("InvalidFragment", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.AbstractFlowrFragment;\n" +
+                    "import com.fueled.flowr.annotations.DeepLink;\n" +
+                    "@DeepLink(value = {\"/order/{id:uuid}\"})\n" +
+                    "public class InvalidFragment extends AbstractFlowrFragment {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_GENERATED_ROUTE_TABLE = JavaFileObjects
+            .forSourceString("DeepLinkRoutes_com_fueled_flowr_sample",
+                    "package com.fueled.flowr.routes;\n" +
+                    "import android.support.v4.app.Fragment;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.sample.HomeFragment;\n" +
+                    "import java.lang.Class;\n" +
+                    "import java.lang.Override;\n" +
+                    "import java.lang.String;\n" +
+                    "public final class DeepLinkRoutes_com_fueled_flowr_sample extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected boolean hasStaticRoutes() {\n" +
+                    "    return true;\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "    addRoute(\"/test\");\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  protected Class<?> loadFragment(int id) {\n" +
+                    "    switch (id) {\n" +
+                    "      case 0:\n" +
+                    "        return HomeFragment.class;\n" +
+                    "      default:\n" +
+                    "        return super.loadFragment(id);\n" +
+                    "    }\n" +
+                    "  }\n" +
+                    "  @Override\n" +
+                    "  public Fragment newFragment(Class<?> fragment) {\n" +
+                    "    String name = fragment.getName();\n" +
+                    "    switch (name.hashCode()) {\n" +
+                    "      case -40850115:\n" +
+                    "        if (name.equals(\"com.fueled.flowr.sample.HomeFragment\")) {\n" +
+                    "          return new HomeFragment();\n" +
+                    "        }\n" +
+                    "        break;\n" +
+                    "      default:\n" +
+                    "        break;\n" +
+                    "    }\n" +
+                    "    return super.newFragment(fragment);\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_OTHER_ROUTE_TABLE = JavaFileObjects
+            .forSourceString("DeepLinkRoutes_other", "package com.fueled.flowr.routes;\n" +
+                    "import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;\n" +
+                    "public final class DeepLinkRoutes_other extends AbstractFlowrDeepLinkHandler {\n" +
+                    "  @Override\n" +
+                    "  protected void registerRoutes() {\n" +
+                    "  }\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_DEEP_LINK_REGISTRY = JavaFileObjects
+            .forSourceString("TestDeepLinkRegistry", "package " + TEST_PACKAGE + ";\n" +
+                    "import com.fueled.flowr.annotations.DeepLinkRegistry;\n" +
+                    "@DeepLinkRegistry\n" +
+                    "public interface TestDeepLinkRegistry {\n" +
+                    "}");
+
+    private static final JavaFileObject TEST_GENERATED_REGISTRY = JavaFileObjects
+            .forSourceString("TestDeepLinkRegistryImpl", "package com.fueled.flowr.sample;\n" +
+                    "import com.fueled.flowr.internal.FlowrDeepLinkHandler;\n" +
+                    "import com.fueled.flowr.routes.DeepLinkRoutes_com_fueled_flowr_sample;\n" +
+                    "import com.fueled.flowr.routes.DeepLinkRoutes_other;\n" +
+                    "public final class TestDeepLinkRegistryImpl {\n" +
+                    "  private TestDeepLinkRegistryImpl() {\n" +
+                    "  }\n" +
+                    "  public static FlowrDeepLinkHandler[] createHandlers() {\n" +
+                    "    return new FlowrDeepLinkHandler[] {\n" +
+                    "      new DeepLinkRoutes_com_fueled_flowr_sample(),\n" +
+                    "      new DeepLinkRoutes_other()\n" +
+                    "    };\n" +
+                    "  }\n" +
+                    "}");
 
     @Test
     public void process() throws Exception {
@@ -53,4 +644,138 @@ public class DeepLinkAnnotationCompilerTest {
         .generatesSources(TEST_DEEP_GENERATED_HANDLER);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void processWithMatcher() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_MATCHER_DEEP_LINK_FRAGMENT, TEST_MATCHER_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_MATCHER_GENERATED_HANDLER);
+    }
+
+    @Test
+    public void processInvalidPattern() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_INVALID_DEEP_LINK_FRAGMENT, TEST_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .failsToCompile()
+                .withErrorContaining("Path variables must span a whole path segment");
+    }
+
+    @Test
+    public void processWithStaticPathMatcher() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_STATIC_DEEP_LINK_FRAGMENT, TEST_MATCHER_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError();
+    }
+
+    @Test
+    public void processWithTypedMatcher() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_TYPED_DEEP_LINK_FRAGMENT, TEST_MATCHER_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_TYPED_GENERATED_HANDLER);
+    }
+
+    @Test
+    public void processWithQueryMatcher() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_QUERY_FALLBACK_DEEP_LINK_FRAGMENT,
+                        TEST_QUERY_DEEP_LINK_FRAGMENT, TEST_MATCHER_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_QUERY_GENERATED_HANDLER);
+    }
+
+    @Test
+    public void processWithWildcardMatcher() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_WILDCARD_DEEP_LINK_FRAGMENT, TEST_MATCHER_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_WILDCARD_GENERATED_HANDLER);
+    }
+
+    @Test
+    public void processUnknownParamType() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_UNKNOWN_TYPE_DEEP_LINK_FRAGMENT, TEST_DEEP_LINK_HANDLER))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .failsToCompile()
+                .withErrorContaining("Unknown type 'uuid' for path variable 'id'");
+    }
+
+    @Test
+    public void processWithoutRouteTable() throws Exception {
+        Compilation compilation = javac()
+                .withProcessors(new DeepLinkAnnotationCompiler())
+                .compile(TEST_DEEP_LINK_FRAGMENT, TEST_DEEP_LINK_HANDLER);
+
+        assertEquals(1, compilation.generatedSourceFiles().size());
+        assertEquals(0, javac()
+                .withProcessors(new DeepLinkAnnotationCompiler())
+                .compile(TEST_DEEP_LINK_FRAGMENT)
+                .generatedSourceFiles().size());
+    }
+
+    @Test
+    public void processRouteTable() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_DEEP_LINK_FRAGMENT))
+                .withCompilerOptions("-Aflowr.moduleName=com.fueled.flowr.sample")
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_GENERATED_ROUTE_TABLE);
+    }
+
+    @Test
+    public void processRouteTableWithoutModuleName() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_DEEP_LINK_FRAGMENT, TEST_OTHER_PACKAGE_DEEP_LINK_FRAGMENT,
+                        TEST_DEEP_LINK_REGISTRY))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .failsToCompile()
+                .withErrorContaining("set the flowr.moduleName processor option");
+    }
+
+    @Test
+    public void processRegistry() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_DEEP_LINK_FRAGMENT, TEST_OTHER_ROUTE_TABLE,
+                        TEST_DEEP_LINK_REGISTRY))
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_GENERATED_ROUTE_TABLE, TEST_GENERATED_REGISTRY);
+    }
+
+    @Test
+    public void processWithBinaryRouteTable() throws Exception {
+        assertAbout(javaSources())
+                .that(Arrays.asList(TEST_DEEP_LINK_FRAGMENT, TEST_DEEP_LINK_HANDLER))
+                .withCompilerOptions("-Aflowr.binaryRouteTable=true")
+                .processedWith(new DeepLinkAnnotationCompiler())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(TEST_BINARY_GENERATED_HANDLER)
+                .and()
+                .generatesFileNamed(StandardLocation.CLASS_OUTPUT, TEST_PACKAGE,
+                        "TestDeepLinkHandlerImpl.routes")
+                .and()
+                .generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+                        "META-INF/proguard/flowr-com.fueled.flowr.sample.TestDeepLinkHandlerImpl.pro")
+                .withStringContents(Charset.forName("UTF-8"),
+                        "-keepnames class com.fueled.flowr.sample.TestDeepLinkHandlerImpl\n" +
+                        "-keep class com.fueled.flowr.sample.HomeFragment {\n" +
+                        "    public <init>();\n" +
+                        "}\n");
+    }
+
+}
@@ -0,0 +1,23 @@
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Stand-in for the Android Intent class used by the benchmarks, only holding the data URI.
+ */
+public class Intent {
+
+    private Uri data;
+
+    public Intent() {
+    }
+
+    public Intent setData(Uri data) {
+        this.data = data;
+        return this;
+    }
+
+    public Uri getData() {
+        return data;
+    }
+}
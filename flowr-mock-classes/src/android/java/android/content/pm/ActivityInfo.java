@@ -0,0 +1,9 @@
+package android.content.pm;
+
+/**
+ * Stand-in for the Android ActivityInfo class used by the benchmarks.
+ */
+public class ActivityInfo {
+
+    public static final int SCREEN_ORIENTATION_UNSPECIFIED = -1;
+}
@@ -0,0 +1,7 @@
+package android.graphics.drawable;
+
+/**
+ * Stand-in for the Android Drawable class used by the benchmarks.
+ */
+public abstract class Drawable {
+}
@@ -0,0 +1,87 @@
+package android.net;
+
+/**
+ * Stand-in for the Android Uri class used by the benchmarks, only parsing the parts of a
+ * hierarchical URI that deep links are matched against. Unlike the Android class,
+ * the path is not decoded.
+ */
+public final class Uri {
+
+    private final String uriString;
+    private final String scheme;
+    private final String host;
+    private final String path;
+    private final String query;
+
+    private Uri(String uriString, String scheme, String host, String path, String query) {
+        this.uriString = uriString;
+        this.scheme = scheme;
+        this.host = host;
+        this.path = path;
+        this.query = query;
+    }
+
+    public static Uri parse(String uriString) {
+        String rest = uriString;
+
+        int fragmentStart = rest.indexOf('#');
+        if (fragmentStart >= 0) {
+            rest = rest.substring(0, fragmentStart);
+        }
+
+        String query = null;
+        int queryStart = rest.indexOf('?');
+        if (queryStart >= 0) {
+            query = rest.substring(queryStart + 1);
+            rest = rest.substring(0, queryStart);
+        }
+
+        String scheme = null;
+        String host = null;
+        int schemeEnd = rest.indexOf("://");
+        if (schemeEnd >= 0) {
+            scheme = rest.substring(0, schemeEnd);
+            int hostStart = schemeEnd + 3;
+            int hostEnd = rest.indexOf('/', hostStart);
+            if (hostEnd < 0) {
+                hostEnd = rest.length();
+            }
+
+            host = hostEnd > hostStart ? rest.substring(hostStart, hostEnd) : null;
+            rest = rest.substring(hostEnd);
+        }
+
+        return new Uri(uriString, scheme, host, rest, query);
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getEncodedQuery() {
+        return query;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Uri && uriString.equals(((Uri) other).uriString);
+    }
+
+    @Override
+    public int hashCode() {
+        return uriString.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return uriString;
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for the Android AsyncTask class used by the benchmarks, only providing its
+ * shared executor.
+ */
+public abstract class AsyncTask {
+
+    public static final Executor THREAD_POOL_EXECUTOR = createExecutor();
+
+    private static ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+}
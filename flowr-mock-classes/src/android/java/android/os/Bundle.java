@@ -0,0 +1,121 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stand-in for the Android Bundle class used by the benchmarks, backed by a hash map
+ * like the Android class once it is unparcelled.
+ */
+public final class Bundle {
+
+    private final Map<String, Object> values;
+
+    public Bundle() {
+        values = new HashMap<>();
+    }
+
+    public Bundle(int capacity) {
+        values = new HashMap<>(capacity);
+    }
+
+    public Bundle(Bundle bundle) {
+        values = new HashMap<>(bundle.values);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public Set<String> keySet() {
+        return values.keySet();
+    }
+
+    public void remove(String key) {
+        values.remove(key);
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public void putAll(Bundle bundle) {
+        values.putAll(bundle.values);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    public void putLong(String key, long value) {
+        values.put(key, value);
+    }
+
+    public void putFloat(String key, float value) {
+        values.put(key, value);
+    }
+
+    public void putDouble(String key, double value) {
+        values.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+
+    public void putBundle(String key, Bundle value) {
+        values.put(key, value);
+    }
+
+    public boolean getBoolean(String key) {
+        Object value = values.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    public int getInt(String key) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : 0;
+    }
+
+    public long getLong(String key) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : 0L;
+    }
+
+    public float getFloat(String key) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : 0f;
+    }
+
+    public double getDouble(String key) {
+        Object value = values.get(key);
+        return value instanceof Double ? (Double) value : 0d;
+    }
+
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public Bundle getBundle(String key) {
+        Object value = values.get(key);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stand-in for the Android Handler class used by the benchmarks, posted messages are run
+ * immediately on the calling thread.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * Stand-in for the Android Looper class used by the benchmarks, there is no message loop
+ * on the JVM.
+ */
+public final class Looper {
+
+    private static final Looper MAIN_LOOPER = new Looper();
+    private static final MessageQueue QUEUE = new MessageQueue();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN_LOOPER;
+    }
+
+    public static MessageQueue myQueue() {
+        return QUEUE;
+    }
+}
@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * Stand-in for the Android MessageQueue class used by the benchmarks, idle handlers are never
+ * called since there is no message loop on the JVM.
+ */
+public final class MessageQueue {
+
+    public interface IdleHandler {
+
+        boolean queueIdle();
+    }
+
+    MessageQueue() {
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+}
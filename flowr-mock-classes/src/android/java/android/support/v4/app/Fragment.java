@@ -0,0 +1,20 @@
+package android.support.v4.app;
+
+import android.os.Bundle;
+
+/**
+ * Stand-in for the support library Fragment class used by the benchmarks, only holding
+ * the fragment arguments.
+ */
+public class Fragment {
+
+    private Bundle arguments;
+
+    public void setArguments(Bundle arguments) {
+        this.arguments = arguments;
+    }
+
+    public Bundle getArguments() {
+        return arguments;
+    }
+}
@@ -0,0 +1,41 @@
+package android.support.v4.app;
+
+/**
+ * Stand-in for the support library FragmentManager class used by the benchmarks.
+ */
+public abstract class FragmentManager {
+
+    public static final int POP_BACK_STACK_INCLUSIVE = 1;
+
+    public interface OnBackStackChangedListener {
+
+        void onBackStackChanged();
+    }
+
+    public interface BackStackEntry {
+
+        int getId();
+
+        String getName();
+    }
+
+    public abstract FragmentTransaction beginTransaction();
+
+    public abstract boolean executePendingTransactions();
+
+    public abstract Fragment findFragmentById(int id);
+
+    public abstract int getBackStackEntryCount();
+
+    public abstract BackStackEntry getBackStackEntryAt(int index);
+
+    public abstract void popBackStack(String name, int flags);
+
+    public abstract boolean popBackStackImmediate(int id, int flags);
+
+    public abstract boolean popBackStackImmediate(String name, int flags);
+
+    public abstract void addOnBackStackChangedListener(OnBackStackChangedListener listener);
+
+    public abstract void removeOnBackStackChangedListener(OnBackStackChangedListener listener);
+}
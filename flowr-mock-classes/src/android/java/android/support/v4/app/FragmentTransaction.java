@@ -0,0 +1,26 @@
+package android.support.v4.app;
+
+/**
+ * Stand-in for the support library FragmentTransaction class used by the benchmarks.
+ */
+public abstract class FragmentTransaction {
+
+    public static final int TRANSIT_NONE = 0;
+
+    public abstract FragmentTransaction add(int containerViewId, Fragment fragment);
+
+    public abstract FragmentTransaction replace(int containerViewId, Fragment fragment);
+
+    public abstract FragmentTransaction remove(Fragment fragment);
+
+    public abstract FragmentTransaction addToBackStack(String name);
+
+    public abstract FragmentTransaction setCustomAnimations(int enter, int exit, int popEnter,
+                                                            int popExit);
+
+    public abstract FragmentTransaction setReorderingAllowed(boolean reorderingAllowed);
+
+    public abstract int commit();
+
+    public abstract void commitNow();
+}
@@ -0,0 +1,14 @@
+package android.text;
+
+/**
+ * Stand-in for the Android TextUtils class used by the benchmarks.
+ */
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence text) {
+        return text == null || text.length() == 0;
+    }
+}
@@ -0,0 +1,21 @@
+package android.util;
+
+/**
+ * Stand-in for the Android Log class used by the benchmarks, messages are written to
+ * the standard error stream.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int e(String tag, String message, Throwable throwable) {
+        System.err.println(tag + ": " + message);
+        throwable.printStackTrace();
+        return 0;
+    }
+
+    public static int w(String tag, String message, Throwable throwable) {
+        return e(tag, message, throwable);
+    }
+}
@@ -0,0 +1,12 @@
+package android.view;
+
+/**
+ * Stand-in for the Android View class used by the benchmarks.
+ */
+public class View {
+
+    public interface OnClickListener {
+
+        void onClick(View view);
+    }
+}
@@ -0,0 +1,7 @@
+package android.support.v4.app;
+
+/**
+ * Mock Fragment class used for compiler tests.
+ */
+public class Fragment {
+}
@@ -1,7 +1,9 @@
 package com.fueled.flowr;
 
+import android.support.v4.app.Fragment;
+
 /**
  * Mock AbstractFlowrFragment class used for compiler tests.
  */
-public class AbstractFlowrFragment {
+public class AbstractFlowrFragment extends Fragment {
 }
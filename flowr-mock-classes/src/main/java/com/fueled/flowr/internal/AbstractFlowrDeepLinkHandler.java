@@ -1,12 +1,49 @@
 package com.fueled.flowr.internal;
 
+import android.support.v4.app.Fragment;
+
 /**
  * Mock AbstractFlowrDeepLinkHandler class used for compiler tests.
  */
-public class AbstractFlowrDeepLinkHandler {
+public class AbstractFlowrDeepLinkHandler implements FlowrDeepLinkHandler,
+        FlowrFragmentFactory {
+
+    protected static final int NO_ROUTE = -1;
+
+    protected boolean hasStaticRoutes() {
+        return false;
+    }
+
+    protected void registerRoutes() {
+
+    }
 
     protected void addFragment(String url, Class clazz) {
 
     }
 
+    protected void addRoute(String url) {
+
+    }
+
+    protected void addRouteTable(String name) {
+
+    }
+
+    protected Class loadFragment(int id) {
+        return null;
+    }
+
+    public Fragment newFragment(Class<?> fragment) {
+        return null;
+    }
+
+    protected int findRoute(DeepLinkMatch match) {
+        return NO_ROUTE;
+    }
+
+    protected final boolean matchesRoute(DeepLinkMatch match, int id) {
+        return false;
+    }
+
 }
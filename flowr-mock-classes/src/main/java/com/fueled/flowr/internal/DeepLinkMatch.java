@@ -0,0 +1,44 @@
+package com.fueled.flowr.internal;
+
+/**
+ * Mock DeepLinkMatch class used for compiler tests.
+ */
+public final class DeepLinkMatch {
+
+    public boolean schemeEquals(String expected) {
+        return false;
+    }
+
+    public boolean hostEquals(String expected) {
+        return false;
+    }
+
+    public int segmentCount() {
+        return 0;
+    }
+
+    public String segment(int index) {
+        return null;
+    }
+
+    public int segmentHash(int index) {
+        return 0;
+    }
+
+    public boolean segmentEquals(int index, String literal) {
+        return false;
+    }
+
+    public boolean segmentAccepts(int index, DeepLinkParamType type) {
+        return false;
+    }
+
+    public int pathHash(int seed) {
+        return 0;
+    }
+
+    public boolean pathEquals(String expected) {
+        return false;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.fueled.flowr.internal;
+
+/**
+ * Mock DeepLinkParamType enum used for compiler tests.
+ */
+public enum DeepLinkParamType {
+
+    BOOLEAN, INT, LONG, FLOAT, DOUBLE, STRING;
+
+    public boolean accepts(String value) {
+        return false;
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.fueled.flowr.internal;
+
+/**
+ * Mock FlowrDeepLinkHandler interface used for compiler tests.
+ */
+public interface FlowrDeepLinkHandler {
+
+}
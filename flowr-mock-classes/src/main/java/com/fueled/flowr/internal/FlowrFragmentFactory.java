@@ -0,0 +1,10 @@
+package com.fueled.flowr.internal;
+
+import android.support.v4.app.Fragment;
+
+/**
+ * Mock FlowrFragmentFactory interface used for compiler tests.
+ */
+public interface FlowrFragmentFactory {
+    Fragment newFragment(Class<?> fragment);
+}
@@ -37,6 +37,15 @@ public abstract class AbstractFlowrActivity<T extends Flowr> extends AppCompatAc
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        if (getFlowr() != null) {
+            getFlowr().onTrimMemory(level);
+        }
+    }
+
     @Override
     public FragmentManager getScreenFragmentManager() {
         return getSupportFragmentManager();
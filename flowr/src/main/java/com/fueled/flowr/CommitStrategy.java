@@ -0,0 +1,27 @@
+package com.fueled.flowr;
+
+/**
+ * The way the fragment transactions of a {@link Flowr} instance are committed.
+ */
+public enum CommitStrategy {
+
+    /**
+     * Commit the transaction to be executed asynchronously on the main thread, without
+     * reordering. The fragment restored when a back stack made of such transactions is cleared
+     * is created before being replaced.
+     */
+    ASYNC,
+
+    /**
+     * Commit the transaction to be executed asynchronously with reordering allowed, so that
+     * transactions executed together are optimized by the fragment manager: fragments added then
+     * removed by consecutive transactions are never created nor inflated.
+     */
+    REORDERED,
+
+    /**
+     * Execute the transaction immediately. Transactions added to the back stack cannot be
+     * committed now, so they are committed then executed along with all the pending ones.
+     */
+    NOW
+}
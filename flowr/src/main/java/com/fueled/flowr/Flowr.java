@@ -3,11 +3,17 @@ package com.fueled.flowr;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.AnimRes;
 import android.support.annotation.IdRes;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
@@ -15,13 +21,24 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
 
+import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;
+import com.fueled.flowr.internal.DefaultFragmentInstantiator;
+import com.fueled.flowr.internal.FlowrBackStackIndex;
+import com.fueled.flowr.internal.FlowrDeepLinkCache;
 import com.fueled.flowr.internal.FlowrDeepLinkHandler;
+import com.fueled.flowr.internal.FlowrDeepLinkIndex;
 import com.fueled.flowr.internal.FlowrDeepLinkInfo;
+import com.fueled.flowr.internal.FlowrFragmentFactory;
+import com.fueled.flowr.internal.FlowrFragmentPool;
+import com.fueled.flowr.internal.FlowrTransitionMatrix;
 import com.fueled.flowr.internal.TransactionData;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by hussein@fueled.com on 31/05/2016.
@@ -42,6 +59,9 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
     private final static String TAG = Flowr.class.getSimpleName();
 
+    private final static int DEFAULT_DEEP_LINK_CACHE_SIZE = 32;
+    private final static int PREDICTED_FRAGMENT_COUNT = 2;
+
     private final FragmentsResultPublisher resultPublisher;
     private final int mainContainerId;
 
@@ -52,9 +72,28 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
     @Nullable private Fragment currentFragment;
 
     private boolean overrideBack;
+    private boolean batchingTransactions;
+    private final FlowrBackStackIndex backStackIndex = new FlowrBackStackIndex();
     private String tagPrefix;
 
-    private List<FlowrDeepLinkHandler> deepLinkHandlers;
+    @Nullable private volatile FlowrDeepLinkIndex deepLinkIndex;
+    private volatile List<FlowrDeepLinkHandler> deepLinkHandlers;
+    private List<FlowrFragmentFactory> fragmentFactories;
+    @Nullable private FragmentInstantiator fragmentInstantiator;
+    private CommitStrategy defaultCommitStrategy = CommitStrategy.ASYNC;
+    private final FlowrFragmentPool fragmentPool = new FlowrFragmentPool();
+    private boolean fillingFragmentPool;
+
+    @Nullable private FlowrTransitionMatrix transitionMatrix;
+    @Nullable private File transitionFile;
+    private boolean preloadingPredictions;
+    private FlowrDeepLinkCache deepLinkCache;
+
+    private Executor backgroundExecutor;
+    @Nullable private Handler mainThreadHandler;
+
+    @VisibleForTesting
+    final List<PendingTransaction> pendingTransactions = new ArrayList<>();
 
     /**
      * Constructor to use when creating a new router for an activity
@@ -127,6 +166,15 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
         setDrawerHandler(drawerHandler);
 
         deepLinkHandlers = new ArrayList<>();
+        fragmentFactories = new ArrayList<>();
+        backgroundExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
+        deepLinkCache = new FlowrDeepLinkCache(new FlowrDeepLinkHandler() {
+            @Nullable
+            @Override
+            public FlowrDeepLinkInfo getDeepLinkInfoForIntent(@NonNull Intent intent) {
+                return findDeepLinkInfo(intent);
+            }
+        }, DEFAULT_DEEP_LINK_CACHE_SIZE);
 
         syncScreenState();
     }
@@ -182,14 +230,18 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
             if (flowrScreen.getScreenFragmentManager() != null) {
                 screen.getScreenFragmentManager().addOnBackStackChangedListener(this);
+                backStackIndex.update(screen.getScreenFragmentManager());
                 setCurrentFragment(retrieveCurrentFragment());
             }
         }
     }
 
     private void removeCurrentRouterScreen() {
+        cancelPendingTransactions();
+
         if (screen != null) {
             screen.getScreenFragmentManager().removeOnBackStackChangedListener(this);
+            backStackIndex.clear();
             screen = null;
             currentFragment = null;
         }
@@ -228,15 +280,296 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
     /**
      * Specify a collection of {@link FlowrDeepLinkHandler} to be used when routing deep link
      * intents replacing all previously set handlers.
+     * <p/>
+     * The {@link AbstractFlowrDeepLinkHandler}s are resolved through a {@link FlowrDeepLinkIndex},
+     * shared with the other routers when they are all generated handlers, which merges the routes
+     * of the handlers relying on the default matcher and queries the other ones, such as the
+     * generated handlers with a dedicated matcher, through their own matcher. Any other handler is then queried in order when the index does
+     * not match the link.
+     * The links resolved by the index or the other handlers are cached and counted by
+     * {@link #getDeepLinkCacheHitCount()} and {@link #getDeepLinkCacheMissCount()}, their
+     * arguments are only built the first time they are resolved. When the cache is disabled
+     * the links matched by the index are resolved straight into the arguments of the transaction.
+     * Setting the handlers also clears the cache of resolved deep links.
+     * <p/>
+     * The handlers that are also a {@link FlowrFragmentFactory}, such as the generated ones,
+     * are then used to create the fragments displayed by this router before falling back
+     * to reflection, unless a {@link FragmentInstantiator} was set.
      *
      * @param handlers the collection of handlers to be used.
      */
     public void setDeepLinkHandlers(FlowrDeepLinkHandler... handlers) {
-        this.deepLinkHandlers.clear();
+        FlowrDeepLinkIndex index = null;
+        List<FlowrDeepLinkHandler> newHandlers = new ArrayList<>();
+        List<FlowrFragmentFactory> factories = new ArrayList<>();
 
         if (handlers != null) {
-            Collections.addAll(deepLinkHandlers, handlers);
+            List<AbstractFlowrDeepLinkHandler> routeHandlers = new ArrayList<>();
+
+            for (FlowrDeepLinkHandler handler : handlers) {
+                if (handler instanceof FlowrFragmentFactory) {
+                    factories.add((FlowrFragmentFactory) handler);
+                }
+
+                if (handler instanceof AbstractFlowrDeepLinkHandler) {
+                    routeHandlers.add((AbstractFlowrDeepLinkHandler) handler);
+                } else if (handler != null) {
+                    newHandlers.add(handler);
+                }
+            }
+
+            if (!routeHandlers.isEmpty()) {
+                index = FlowrDeepLinkIndex.forHandlers(routeHandlers);
+            }
+        }
+
+        // replaced as a whole since links may be resolved from a background thread
+        this.deepLinkIndex = index;
+        this.deepLinkHandlers = newHandlers;
+        this.fragmentFactories = factories;
+        this.deepLinkCache.clear();
+    }
+
+    /**
+     * Specify the executor used to resolve deep links for the fragments displayed through
+     * {@link Builder#displayFragmentAsync(TransactionCallback)}, defaults to
+     * {@link AsyncTask#THREAD_POOL_EXECUTOR}.
+     *
+     * @param executor the executor to be used.
+     */
+    public void setBackgroundExecutor(@NonNull Executor executor) {
+        this.backgroundExecutor = executor;
+    }
+
+    /**
+     * Load the fragment classes of deep links likely to be opened on the background executor,
+     * for the routes generated without loading their fragment class. This has no effect on
+     * the handlers that are not merged into the {@link FlowrDeepLinkIndex}.
+     *
+     * @param links the links likely to be opened.
+     */
+    public void preloadDeepLinks(@NonNull Uri... links) {
+        FlowrDeepLinkIndex index = deepLinkIndex;
+
+        if (index != null) {
+            index.preloadFragments(Arrays.asList(links), backgroundExecutor);
+        }
+    }
+
+    /**
+     * Specify the instantiator used to create the fragments displayed by this router, for
+     * instance to provide them through dependency injection. By default the fragments are created
+     * by the factories generated for the deep link handlers, else through their constructor
+     * without parameters, which is only looked up once per class.
+     *
+     * @param instantiator the instantiator to be used, or null to restore the default one.
+     */
+    public void setFragmentInstantiator(@Nullable FragmentInstantiator instantiator) {
+        this.fragmentInstantiator = instantiator;
+    }
+
+    /**
+     * Register a fragment class displayed often enough for its instances to be created ahead of
+     * time, on the main thread while it is idle. The pooled fragments are then displayed with
+     * the arguments of their transaction instead of creating new ones, and the pool is filled
+     * again once the main thread is idle. The pooled fragments are dropped by
+     * {@link #onTrimMemory(int)}.
+     *
+     * @param fragmentClass the class of the fragments to pool.
+     * @param poolSize      the maximum number of fragments to create ahead of time.
+     */
+    @MainThread
+    public void registerPooledFragment(@NonNull Class<? extends Fragment> fragmentClass,
+                                       int poolSize) {
+        fragmentPool.register(fragmentClass, poolSize);
+        fillFragmentPoolWhenIdle();
+    }
+
+    /**
+     * Stop creating the fragments of a class ahead of time, dropping the pooled ones.
+     *
+     * @param fragmentClass the class of the pooled fragments.
+     */
+    @MainThread
+    public void unregisterPooledFragment(@NonNull Class<? extends Fragment> fragmentClass) {
+        fragmentPool.unregister(fragmentClass);
+    }
+
+    /**
+     * Called by {@link AbstractFlowrActivity#onTrimMemory(int)} to drop the pooled fragments,
+     * they are only created again after a pooled fragment was displayed. The navigation
+     * predictions are saved as well since the process may be killed.
+     *
+     * @param level the context of the trim, as given to the activity.
+     */
+    @MainThread
+    public void onTrimMemory(int level) {
+        fragmentPool.clear();
+        saveNavigationPredictions();
+    }
+
+    /**
+     * Enable the prediction of the next fragments displayed by this router. The transitions
+     * between fragment classes are counted as the current fragment changes, and the classes of
+     * the fragments most often displayed after the current one are loaded in the background
+     * once the main thread is idle, along with their constructor. The counts are read from
+     * the specified file on the background executor, and saved to it on
+     * {@link #onTrimMemory(int)} and {@link #onDestroy()}.
+     *
+     * @param file the file to keep the transition counts in, a different one for each router,
+     *             or null to disable the predictions.
+     */
+    @MainThread
+    public void setNavigationPredictionFile(@Nullable final File file) {
+        if (file == null) {
+            transitionMatrix = null;
+            transitionFile = null;
+            return;
+        }
+
+        final FlowrTransitionMatrix matrix = new FlowrTransitionMatrix();
+        transitionMatrix = matrix;
+        transitionFile = file;
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    matrix.load(file);
+                } catch (IOException e) {
+                    Log.e(TAG, "Error while reading navigation predictions.", e);
+                }
+            }
+        });
+    }
+
+    private void saveNavigationPredictions() {
+        final FlowrTransitionMatrix matrix = transitionMatrix;
+        final File file = transitionFile;
+
+        if (matrix == null || file == null) {
+            return;
+        }
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    matrix.save(file);
+                } catch (IOException e) {
+                    Log.e(TAG, "Error while saving navigation predictions.", e);
+                }
+            }
+        });
+    }
+
+    private void recordTransition(@Nullable Fragment from, @Nullable Fragment to) {
+        if (transitionMatrix == null || to == null) {
+            return;
+        }
+
+        if (from != null) {
+            transitionMatrix.record(from.getClass().getName(), to.getClass().getName());
+        }
+
+        if (!preloadingPredictions) {
+            preloadingPredictions = true;
+            addIdleHandler(new MessageQueue.IdleHandler() {
+                @Override
+                public boolean queueIdle() {
+                    preloadingPredictions = false;
+                    preloadPredictedFragments();
+                    return false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Load the classes of the fragments most likely to be displayed after the current one on
+     * the background executor and look up their constructor so that displaying them does not
+     * have to. The classes are loaded but not initialized, their static initializers still run
+     * on the main thread when the fragments are first created.
+     */
+    private void preloadPredictedFragments() {
+        final FlowrTransitionMatrix matrix = transitionMatrix;
+        if (matrix == null || currentFragment == null) {
+            return;
         }
+
+        final String from = currentFragment.getClass().getName();
+        final ClassLoader classLoader = currentFragment.getClass().getClassLoader();
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String className : matrix.predict(from, PREDICTED_FRAGMENT_COUNT)) {
+                    try {
+                        // not initialized here, the static initializer of the fragment still
+                        // runs on the main thread when the fragment is first created
+                        Class<?> fragmentClass = Class.forName(className, false, classLoader);
+
+                        if (Fragment.class.isAssignableFrom(fragmentClass)) {
+                            DefaultFragmentInstantiator.getInstance()
+                                    .preload(fragmentClass.asSubclass(Fragment.class));
+                        }
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        Log.w(TAG, "Unable to preload predicted fragment " + className, e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Specify the strategy used to commit the transactions of the builders that do not specify
+     * their own, defaults to {@link CommitStrategy#ASYNC}. Use {@link CommitStrategy#REORDERED}
+     * so that the fragments restored by clearing the back stack are not created. The transactions
+     * of a {@link Batch} are always executed together with reordering allowed.
+     *
+     * @param strategy the commit strategy to be used.
+     */
+    public void setDefaultCommitStrategy(@NonNull CommitStrategy strategy) {
+        this.defaultCommitStrategy = strategy;
+    }
+
+    /**
+     * Returns the strategy used to commit the transactions of the builders that do not specify
+     * their own.
+     *
+     * @return the default commit strategy.
+     */
+    @NonNull
+    public CommitStrategy getDefaultCommitStrategy() {
+        return defaultCommitStrategy;
+    }
+
+    /**
+     * Specify the maximum number of resolved deep links to be cached by this router, the cache
+     * is keyed by the whole URI so the handlers are expected to only rely on the intent data.
+     *
+     * @param size the maximum number of links to cache, 0 to disable the cache.
+     */
+    public void setDeepLinkCacheSize(int size) {
+        deepLinkCache.setMaxSize(size);
+    }
+
+    /**
+     * Returns the number of deep links that were resolved from the cache.
+     *
+     * @return the number of deep link cache hits.
+     */
+    public int getDeepLinkCacheHitCount() {
+        return deepLinkCache.getHitCount();
+    }
+
+    /**
+     * Returns the number of deep links that had to be resolved by the handlers.
+     *
+     * @return the number of deep link cache misses.
+     */
+    public int getDeepLinkCacheMissCount() {
+        return deepLinkCache.getMissCount();
     }
 
     /**
@@ -264,69 +597,385 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
             injectDeepLinkInfo(data);
 
+            // the back stack is only cleared once the transaction is executed
+            int backStackEntryCount = 0;
             if (data.isClearBackStack()) {
                 clearBackStack();
+            } else {
+                backStackEntryCount = screen.getScreenFragmentManager().getBackStackEntryCount();
             }
 
             currentFragment = retrieveCurrentFragment();
 
-            Fragment fragment = data.getFragmentClass().newInstance();
-            fragment.setArguments(data.getArgs());
-
             FragmentTransaction transaction = screen.getScreenFragmentManager().beginTransaction();
+            Fragment fragment = addFragment(transaction, data, backStackEntryCount);
+
+            identifier = commit(transaction, data);
 
-            if (!data.isSkipBackStack()) {
-                String id = tagPrefix + screen.getScreenFragmentManager().getBackStackEntryCount();
-                transaction.addToBackStack(id);
+            if (data.isSkipBackStack()) {
+                setCurrentFragment(fragment);
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Error while displaying fragment.", e);
+        }
+        return identifier;
+    }
 
-            setCustomAnimations(transaction, data.getEnterAnim(), data.getExitAnim(), data.getPopEnterAnim(), data.getPopExitAnim());
+    /**
+     * Display the fragments of several transactions at once, clearing the back stack first for
+     * the transactions requesting it. Each transaction still gets its own back stack entry, but
+     * they are all executed in a single pass of the fragment manager with reordering allowed, and
+     * the current fragment and the screen state are only updated once all of them were executed.
+     * Consecutive transactions that skip the back stack are merged into a single transaction.
+     *
+     * @param transactions the transactions to display, in order.
+     * @return id Identifier of the last committed transaction.
+     */
+    @MainThread
+    protected int displayFragments(List<TransactionData<?>> transactions) {
+        int identifier = -1;
+        if (screen == null || transactions.isEmpty()) {
+            return identifier;
+        }
 
-            if (data.isReplaceCurrentFragment()) {
-                transaction.replace(mainContainerId, fragment);
-            } else {
-                transaction.add(mainContainerId, fragment);
+        FragmentManager fragmentManager = screen.getScreenFragmentManager();
+        batchingTransactions = true;
+
+        try {
+            // the back stack only changes once the transactions are executed
+            int backStackEntryCount = fragmentManager.getBackStackEntryCount();
+            FragmentTransaction transaction = null;
+            boolean mergeTransaction = false;
+
+            for (TransactionData<?> data : transactions) {
+                injectDeepLinkInfo(data);
+
+                if (transaction != null && (data.isClearBackStack()
+                        || !mergeTransaction || !data.isSkipBackStack())) {
+                    identifier = transaction.commit();
+                    transaction = null;
+                }
+
+                if (data.isClearBackStack()) {
+                    fragmentManager.popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+                    backStackEntryCount = 0;
+                }
+
+                if (transaction == null) {
+                    transaction = fragmentManager.beginTransaction();
+                    transaction.setReorderingAllowed(true);
+                }
+
+                addFragment(transaction, data, backStackEntryCount);
+
+                if (!data.isSkipBackStack()) {
+                    backStackEntryCount++;
+                }
+
+                mergeTransaction = data.isSkipBackStack();
             }
 
             identifier = transaction.commit();
+            executePendingTransactions(fragmentManager);
+        } catch (Exception e) {
+            Log.e(TAG, "Error while displaying fragments.", e);
+        } finally {
+            batchingTransactions = false;
+            setCurrentFragment(retrieveCurrentFragment());
+        }
 
-            if (data.isSkipBackStack()) {
-                setCurrentFragment(fragment);
+        return identifier;
+    }
+
+    /**
+     * Commit a fragment transaction with the strategy of its transaction data, else with
+     * the default strategy of this router. The transactions clearing the back stack always allow
+     * reordering, so that they are executed in the same pass as the pending pop clearing it.
+     *
+     * @param transaction the fragment transaction to commit.
+     * @param data        TransactionData used to configure fragment transaction
+     * @return id Identifier of the committed transaction, -1 if it was not added to the back stack.
+     */
+    private int commit(FragmentTransaction transaction, TransactionData<?> data) {
+        CommitStrategy strategy = data.getCommitStrategy() != null
+                ? data.getCommitStrategy() : defaultCommitStrategy;
+
+        if (strategy == CommitStrategy.REORDERED || data.isClearBackStack()) {
+            // the fragment restored by clearing the back stack is then never drawn, nor created
+            // when the popped transactions allowed reordering
+            transaction.setReorderingAllowed(true);
+        }
+
+        if (strategy != CommitStrategy.NOW) {
+            return transaction.commit();
+        }
+
+        if (data.isSkipBackStack() && !data.isClearBackStack()) {
+            try {
+                transaction.commitNow();
+            } catch (IllegalStateException e) {
+                // the fragment manager is already executing transactions, this one is executed
+                // once it is done with them
+                transaction.commit();
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error while displaying fragment.", e);
+
+            return -1;
         }
+
+        // commitNow() neither supports transactions added to the back stack nor executes
+        // the pending pop clearing it
+        int identifier = transaction.commit();
+        executePendingTransactions(screen.getScreenFragmentManager());
         return identifier;
     }
 
+    /**
+     * Execute the pending transactions of a fragment manager. When the fragment manager is
+     * already executing transactions, for instance when called from a fragment callback, the
+     * transactions committed in the meantime are executed once it is done with the current ones.
+     *
+     * @param fragmentManager the fragment manager to execute the transactions of.
+     */
+    private static void executePendingTransactions(FragmentManager fragmentManager) {
+        try {
+            fragmentManager.executePendingTransactions();
+        } catch (IllegalStateException e) {
+            // Executed at the end of the current pass.
+        }
+    }
+
+    /**
+     * Add the fragment of a transaction to a fragment transaction, along with its animations and
+     * its back stack entry.
+     *
+     * @param transaction         the fragment transaction to add the fragment to.
+     * @param data                TransactionData used to configure fragment transaction
+     * @param backStackEntryCount the number of back stack entries before this transaction.
+     * @param <T>                 type Fragment & FlowrFragment
+     * @return the fragment added to the transaction.
+     */
+    private <T extends Fragment & FlowrFragment> Fragment addFragment(
+            FragmentTransaction transaction, TransactionData<T> data, int backStackEntryCount) {
+        Fragment fragment = newFragment(data.getFragmentClass());
+        fragment.setArguments(data.getArgs());
+
+        if (!data.isSkipBackStack()) {
+            transaction.addToBackStack(backStackIndex.getEntryName(tagPrefix,
+                    backStackEntryCount, fragment.getClass()));
+        }
+
+        setCustomAnimations(transaction, data.getEnterAnim(), data.getExitAnim(), data.getPopEnterAnim(), data.getPopExitAnim());
+
+        if (data.isReplaceCurrentFragment()) {
+            transaction.replace(mainContainerId, fragment);
+        } else {
+            transaction.add(mainContainerId, fragment);
+        }
+
+        return fragment;
+    }
+
+    /**
+     * Returns a fragment of the specified class created ahead of time if one is pooled,
+     * else create a new one.
+     *
+     * @param fragmentClass the class of the fragment to display.
+     * @return the fragment to display.
+     */
+    private Fragment newFragment(Class<? extends Fragment> fragmentClass) {
+        Fragment fragment = fragmentPool.acquire(fragmentClass);
+
+        if (fragment != null) {
+            fillFragmentPoolWhenIdle();
+            return fragment;
+        }
+
+        return createFragment(fragmentClass);
+    }
+
+    /**
+     * Create a new instance of a fragment class through the fragment instantiator if one was set.
+     * Otherwise the fragment factories are tried first, then the cached constructor of the class.
+     *
+     * @param fragmentClass the class of the fragment to create.
+     * @return the new fragment.
+     */
+    private Fragment createFragment(Class<? extends Fragment> fragmentClass) {
+        if (fragmentInstantiator != null) {
+            return fragmentInstantiator.instantiate(fragmentClass);
+        }
+
+        for (FlowrFragmentFactory factory : fragmentFactories) {
+            Fragment fragment = factory.newFragment(fragmentClass);
+            if (fragment != null) {
+                return fragment;
+            }
+        }
+
+        return DefaultFragmentInstantiator.getInstance().instantiate(fragmentClass);
+    }
+
+    private void fillFragmentPoolWhenIdle() {
+        if (fillingFragmentPool || fragmentPool.nextMissing() == null) {
+            return;
+        }
+
+        fillingFragmentPool = true;
+        addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                fillingFragmentPool = fillFragmentPool();
+                return fillingFragmentPool;
+            }
+        });
+    }
+
+    /**
+     * Create a single pooled fragment, so that the main thread is not kept busy when
+     * several fragments are missing.
+     *
+     * @return true if fragments are still missing from the pool.
+     */
+    private boolean fillFragmentPool() {
+        Class<? extends Fragment> fragmentClass = fragmentPool.nextMissing();
+        if (screen == null || fragmentClass == null) {
+            return false;
+        }
+
+        try {
+            fragmentPool.put(createFragment(fragmentClass));
+        } catch (Exception e) {
+            Log.e(TAG, "Error while creating pooled fragment.", e);
+            fragmentPool.unregister(fragmentClass);
+        }
+
+        return fragmentPool.nextMissing() != null;
+    }
+
+    @VisibleForTesting
+    void addIdleHandler(MessageQueue.IdleHandler handler) {
+        Looper.myQueue().addIdleHandler(handler);
+    }
+
+    /**
+     * Resolve the deep link of the transaction on the background executor, then display
+     * the fragment on the main thread unless the transaction was cancelled in the meantime.
+     *
+     * @param data     TransactionData used to configure fragment transaction
+     * @param callback the callback to notify once the transaction was committed.
+     * @param <T>      type Fragment & FlowrFragment
+     * @return the handle of the pending transaction.
+     */
+    @MainThread
+    protected <T extends Fragment & FlowrFragment> PendingTransaction displayFragmentAsync(
+            final TransactionData<T> data, @Nullable TransactionCallback callback) {
+        final PendingTransaction transaction = new PendingTransaction(callback, pendingTransactions);
+
+        if (screen == null) {
+            transaction.cancel();
+            return transaction;
+        }
+
+        pendingTransactions.add(transaction);
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (transaction.isCancelled()) {
+                    return;
+                }
+
+                try {
+                    injectDeepLinkInfo(data);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error while resolving deep link.", e);
+                }
+
+                // already resolved, so that it is not resolved again when displaying the fragment
+                data.setDeepLinkIntent(null);
+
+                postOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pendingTransactions.remove(transaction) && !transaction.isCancelled()) {
+                            transaction.complete(displayFragment(data));
+                        }
+                    }
+                });
+            }
+        });
+
+        return transaction;
+    }
+
+    private void cancelPendingTransactions() {
+        // cancelling a transaction removes it from the list
+        for (PendingTransaction transaction : new ArrayList<>(pendingTransactions)) {
+            transaction.cancel();
+        }
+    }
+
+    @VisibleForTesting
+    void postOnMainThread(Runnable runnable) {
+        if (mainThreadHandler == null) {
+            mainThreadHandler = new Handler(Looper.getMainLooper());
+        }
+
+        mainThreadHandler.post(runnable);
+    }
+
     /**
      * Parse the intent set by {@link TransactionData#deepLinkIntent} and if this intent contains
      * Deep Link info, update the {@link #currentFragment} and the Transaction data.
+     * The index is tried first and updates the transaction directly, the other handlers
+     * are then queried through the cache.
      *
      * @param data The Transaction data to extend if Deep link info are found in
      *             the {@link TransactionData#deepLinkIntent}.
      * @param <T>  The generic type for a valid Fragment.
      */
     @SuppressWarnings("unchecked")
-    private <T extends Fragment & FlowrFragment> void injectDeepLinkInfo(TransactionData<T> data) {
-        Intent deepLinkIntent = data.getDeepLinkIntent();
-        if (deepLinkIntent != null) {
-            for (FlowrDeepLinkHandler handler : deepLinkHandlers) {
-                FlowrDeepLinkInfo info = handler.getDeepLinkInfoForIntent(deepLinkIntent);
-
-                if (info != null) {
-                    data.setFragmentClass(info.fragment);
-                    Bundle dataArgs = data.getArgs();
-                    if (dataArgs != null) {
-                        data.getArgs().putAll(info.data);
-                    } else {
-                        data.setArgs(info.data);
-                    }
+    @VisibleForTesting
+    <T extends Fragment & FlowrFragment> void injectDeepLinkInfo(TransactionData<T> data) {
+        if (data.getDeepLinkIntent() == null) {
+            return;
+        }
 
-                    break;
-                }
+        FlowrDeepLinkIndex index = deepLinkIndex;
+
+        // without a cache, the links of the index are resolved straight into the arguments
+        if (deepLinkCache.getMaxSize() > 0 || index == null || !index.injectDeepLinkInfo(data)) {
+            deepLinkCache.injectDeepLinkInfo(data);
+        }
+    }
+
+    /**
+     * Query the deep link index, then the other deep link handlers in order, for the info of
+     * the specified intent.
+     *
+     * @param deepLinkIntent the intent to retrieve the info from.
+     * @return the info from the first handler that resolved the intent, else null.
+     */
+    @Nullable
+    private FlowrDeepLinkInfo findDeepLinkInfo(Intent deepLinkIntent) {
+        FlowrDeepLinkIndex index = deepLinkIndex;
+
+        if (index != null) {
+            FlowrDeepLinkInfo info = index.getDeepLinkInfoForIntent(deepLinkIntent);
+
+            if (info != null) {
+                return info;
+            }
+        }
+
+        for (FlowrDeepLinkHandler handler : deepLinkHandlers) {
+            FlowrDeepLinkInfo info = handler.getDeepLinkInfoForIntent(deepLinkIntent);
+
+            if (info != null) {
+                return info;
             }
         }
+
+        return null;
     }
 
     /**
@@ -362,7 +1011,14 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
     @Override
     public void onBackStackChanged() {
-        setCurrentFragment(retrieveCurrentFragment());
+        if (screen != null) {
+            backStackIndex.update(screen.getScreenFragmentManager());
+        }
+
+        // a batch updates the current fragment once all of its transactions were executed
+        if (!batchingTransactions) {
+            setCurrentFragment(retrieveCurrentFragment());
+        }
     }
 
     private void updateVisibilityState(Fragment fragment, boolean shown) {
@@ -400,9 +1056,15 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
         int count = screen.getScreenFragmentManager().getBackStackEntryCount();
         if (count > 1) {
-            String id = tagPrefix + (screen.getScreenFragmentManager().getBackStackEntryCount() - n);
-            screen.getScreenFragmentManager()
-                    .popBackStackImmediate(id, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+            int position = count - n;
+
+            if (position >= 0) {
+                FragmentManager fragmentManager = screen.getScreenFragmentManager();
+                int id = backStackIndex.size() == count
+                        ? backStackIndex.getTransactionId(position)
+                        : fragmentManager.getBackStackEntryAt(position).getId();
+                fragmentManager.popBackStackImmediate(id, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+            }
         } else {
             close();
         }
@@ -428,6 +1090,48 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
         }
     }
 
+    /**
+     * Pop the back stack entries above the topmost one displaying a fragment of the specified
+     * class, so that this fragment is displayed again. The pending transactions are executed
+     * first, so that their entries are taken into account.
+     *
+     * @param fragmentClass the class of the fragment to return to.
+     * @return true if a back stack entry displaying a fragment of this class was found.
+     */
+    public boolean popTo(@NonNull Class<? extends Fragment> fragmentClass) {
+        if (screen == null) {
+            return false;
+        }
+
+        FragmentManager fragmentManager = screen.getScreenFragmentManager();
+        executePendingTransactions(fragmentManager);
+
+        int position = backStackIndex.indexOf(fragmentClass);
+        if (position < 0) {
+            return false;
+        }
+
+        if (position < backStackIndex.size() - 1) {
+            fragmentManager.popBackStackImmediate(backStackIndex.getTransactionId(position), 0);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the position in the back stack of the topmost entry displaying a fragment of
+     * the specified class, only the entries added by this router are taken into account.
+     * The back stack is indexed once the transactions are executed, so the entries of the
+     * transactions that are still pending, such as the ones just committed with
+     * {@link CommitStrategy#ASYNC} or {@link CommitStrategy#REORDERED}, are not found.
+     *
+     * @param fragmentClass the class of the fragment.
+     * @return the position of the entry from the bottom of the back stack, or -1 if there is none.
+     */
+    public int indexOf(@NonNull Class<? extends Fragment> fragmentClass) {
+        return backStackIndex.indexOf(fragmentClass);
+    }
+
     /**
      * Closes the current activity if the fragments back stack is empty,
      * otherwise pop the top fragment from the stack and publish the results response.
@@ -474,7 +1178,7 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
     public void clearBackStack() {
         if (screen != null) {
             screen.getScreenFragmentManager()
-                    .popBackStack(tagPrefix + "0", FragmentManager.POP_BACK_STACK_INCLUSIVE);
+                    .popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
             currentFragment = null;
         }
     }
@@ -523,6 +1227,7 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
     private void setCurrentFragment(@Nullable Fragment newFragment) {
         if (currentFragment != newFragment) {
+            recordTransition(currentFragment, newFragment);
             updateVisibilityState(currentFragment, false);
             currentFragment = newFragment;
             updateVisibilityState(currentFragment, true);
@@ -633,6 +1338,16 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
     }
 
 
+    /**
+     * Creates a new {@link Batch} instance to be used to display several fragments at once,
+     * for instance to clear the back stack and open a whole flow of screens.
+     *
+     * @return a new {@link Batch} instance
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
     /**
      * The default enter animation to be used for fragment transactions
      *
@@ -675,6 +1390,8 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
     }
 
     public void onDestroy() {
+        fragmentPool.clear();
+        saveNavigationPredictions();
         setRouterScreen(null);
         setToolbarHandler(null);
         setDrawerHandler(null);
@@ -726,7 +1443,10 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
         }
 
         /**
-         * Specifies if the fragment manager back stack should be cleared.
+         * Specifies if the fragment manager back stack should be cleared. The back stack is
+         * cleared and the fragment displayed in a single pass of the fragment manager, so that
+         * the fragment restored by clearing the back stack is never drawn, and not even created
+         * when the cleared transactions allowed reordering, see {@link CommitStrategy#REORDERED}.
          */
         public Builder clearBackStack(boolean clearBackStack) {
             data.setClearBackStack(clearBackStack);
@@ -771,6 +1491,17 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
 
         }
 
+        /**
+         * Specifies how this transaction should be committed, the default strategy of the router
+         * is used otherwise.
+         *
+         * @param commitStrategy the strategy to commit this transaction with.
+         */
+        public Builder setCommitStrategy(@NonNull CommitStrategy commitStrategy) {
+            data.setCommitStrategy(commitStrategy);
+            return this;
+        }
+
         /**
          * Don't use any animations for this transaction
          */
@@ -788,6 +1519,27 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
             return Flowr.this.displayFragment(data);
         }
 
+        /**
+         * Displays the fragment using this builder configurations, resolving its deep link
+         * in the background and committing the transaction on the main thread.
+         *
+         * @return the handle of the pending transaction, to be cancelled if needed.
+         */
+        public PendingTransaction displayFragmentAsync() {
+            return displayFragmentAsync(null);
+        }
+
+        /**
+         * Displays the fragment using this builder configurations, resolving its deep link
+         * in the background and committing the transaction on the main thread.
+         *
+         * @param callback the callback to notify once the transaction was committed.
+         * @return the handle of the pending transaction, to be cancelled if needed.
+         */
+        public PendingTransaction displayFragmentAsync(@Nullable TransactionCallback callback) {
+            return Flowr.this.displayFragmentAsync(data, callback);
+        }
+
         /**
          * Displays the fragment for results using this builder configurations.
          *
@@ -819,4 +1571,32 @@ public class Flowr implements FragmentManager.OnBackStackChangedListener,
         }
     }
 
+    /**
+     * This class is used to display the fragments of several builders at once, with a single
+     * update of the current fragment and of the screen state.
+     */
+    public class Batch {
+
+        private final List<TransactionData<?>> transactions = new ArrayList<>();
+
+        /**
+         * Adds the fragment of a builder to this batch, after the ones already added.
+         *
+         * @param builder the builder configuring the fragment to be displayed.
+         */
+        public Batch add(Builder builder) {
+            transactions.add(builder.data);
+            return this;
+        }
+
+        /**
+         * Displays the fragments of this batch in the order they were added.
+         *
+         * @return id Identifier of the last committed transaction.
+         */
+        public int displayFragments() {
+            return Flowr.this.displayFragments(transactions);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.fueled.flowr;
+
+import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
+
+/**
+ * Creates the fragments displayed by a {@link Flowr} instance, for instance to provide them
+ * through dependency injection or to reuse pooled instances.
+ */
+public interface FragmentInstantiator {
+
+    /**
+     * Create a new instance of a fragment class, called on the main thread.
+     *
+     * @param fragmentClass the class of the fragment to display.
+     * @return the fragment to display.
+     * @throws RuntimeException if the fragment could not be created.
+     */
+    @NonNull
+    Fragment instantiate(@NonNull Class<? extends Fragment> fragmentClass);
+}
@@ -0,0 +1,76 @@
+package com.fueled.flowr;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Handle to a fragment being displayed asynchronously, whose deep link is resolved in
+ * the background before the transaction is committed on the main thread.
+ * <p/>
+ * Pending transactions are cancelled automatically when the {@link FlowrScreen} of
+ * the router changes or the router is destroyed.
+ */
+public final class PendingTransaction {
+
+    @Nullable private final TransactionCallback callback;
+    private final List<PendingTransaction> pendingTransactions;
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private int transactionId = -1;
+
+    PendingTransaction(@Nullable TransactionCallback callback,
+                       List<PendingTransaction> pendingTransactions) {
+        this.callback = callback;
+        this.pendingTransactions = pendingTransactions;
+    }
+
+    /**
+     * Cancel the transaction if it was not committed yet, the callback will then never
+     * be notified.
+     */
+    @MainThread
+    public void cancel() {
+        cancelled = true;
+        pendingTransactions.remove(this);
+    }
+
+    /**
+     * Returns whether the transaction was cancelled before being committed.
+     *
+     * @return true if the transaction was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled && !done;
+    }
+
+    /**
+     * Returns whether the transaction was committed, or at least attempted.
+     *
+     * @return true if the transaction is done.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the identifier of the committed transaction.
+     *
+     * @return the identifier of the committed transaction, or -1 if it is not done
+     * or the fragment could not be displayed.
+     */
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    void complete(int id) {
+        transactionId = id;
+        done = true;
+
+        if (callback != null) {
+            callback.onTransactionCommitted(id);
+        }
+    }
+}
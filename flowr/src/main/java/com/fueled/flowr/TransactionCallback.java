@@ -0,0 +1,16 @@
+package com.fueled.flowr;
+
+/**
+ * Callback notified on the main thread once a fragment displayed asynchronously
+ * was committed.
+ */
+public interface TransactionCallback {
+
+    /**
+     * Called once the transaction displaying the fragment was committed.
+     *
+     * @param id the identifier of the committed transaction, or -1 if the fragment
+     *           could not be displayed.
+     */
+    void onTransactionCommitted(int id);
+}
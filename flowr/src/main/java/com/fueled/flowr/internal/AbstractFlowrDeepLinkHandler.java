@@ -11,28 +11,64 @@ import android.support.v4.app.Fragment;
 import com.fueled.flowr.Flowr;
 import com.fueled.flowr.FlowrFragment;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by husseinaladeen@gmail.com on 04/06/2017.
  * Copyright (c) 2017 Hussein Ala. All rights reserved.
  */
 public class AbstractFlowrDeepLinkHandler<T extends Fragment & FlowrFragment>
-        implements FlowrDeepLinkHandler {
+        implements FlowrDeepLinkHandler, FlowrFragmentFactory {
 
-    private static final String NAMED_PARAM_REGEX = "\\{([a-zA-Z][a-zA-Z0-9]*)\\}";
-    private static final Pattern NAMED_PARAM_PATTERN = Pattern.compile(NAMED_PARAM_REGEX);
+    /**
+     * Returned by {@link #findRoute(DeepLinkMatch)} when none of the routes match the link.
+     */
+    protected static final int NO_ROUTE = -1;
 
-    private final Map<String, Class<? extends T>> linkFragmentMap;
+    private final List<DeepLinkRoute<T>> routes;
+    private DeepLinkRouteTrie<T> routeTrie;
+    private boolean routesRegistered;
 
     public AbstractFlowrDeepLinkHandler() {
-        linkFragmentMap = new HashMap<>();
+        routes = new ArrayList<>();
+    }
+
+    /**
+     * Called once before the routes of this handler are first needed, override this method
+     * to register the routes using {@link #addFragment(String, Class)} or
+     * {@link #addRoute(String)} so that creating a new handler instance stays cheap.
+     */
+    protected void registerRoutes() {
+        // Do Nothing. Routes can also be added from the constructor.
+    }
+
+    /**
+     * Whether every instance of this handler class registers the same routes, in which case
+     * the index resolving the links of a list of such handlers is built once per process and
+     * shared by all the routers. Generated handlers return true, the other handlers are indexed
+     * each time they are set on a router.
+     *
+     * @return true if the routes only depend on the class of this handler.
+     */
+    protected boolean hasStaticRoutes() {
+        return false;
+    }
+
+    /**
+     * Returns the routes of this handler, in the order they were added.
+     *
+     * @return the list of routes.
+     */
+    synchronized List<DeepLinkRoute<T>> getRoutes() {
+        if (!routesRegistered) {
+            routesRegistered = true;
+            registerRoutes();
+        }
+
+        return routes;
     }
 
     /**
@@ -40,58 +76,167 @@ public class AbstractFlowrDeepLinkHandler<T extends Fragment & FlowrFragment>
      *
      * @param url      the URL pattern to link the fragment class to.
      * @param fragment the fragment class to be linked to the URL pattern.
+     * @throws IllegalArgumentException if a path variable in the URL pattern does not span
+     *                                  a whole path segment or has an invalid name.
      */
     protected void addFragment(String url, Class<? extends T> fragment) {
-        linkFragmentMap.put(url, fragment);
+        routes.add(DeepLinkRoute.parse(routes.size(), url, fragment, null, null));
+        routeTrie = null;
     }
 
     /**
-     * Generates a bundle of the url named path variables and parameters.
+     * Add a new link between a specific URL pattern and the fragment class returned by
+     * {@link #loadFragment(int)} for the route, so that the class is only loaded once a link
+     * matches the route.
      *
-     * @param uri     the url to generate the bundle from.
-     * @param pattern the pattern to extract named path variables with.
-     * @return a bundle containing all path variables and parameters as strings.
+     * @param url the URL pattern to link the fragment class to.
+     * @throws IllegalArgumentException if a path variable in the URL pattern does not span
+     *                                  a whole path segment or has an invalid name.
      */
-    @Nullable
-    private Bundle bundleUriInfo(Uri uri, String pattern) {
-        String regex = getRegexPattern(pattern);
-        String path = uri.getPath();
-        Matcher m = Pattern.compile(regex).matcher(path);
-
-        if (m.matches()) {
-            Bundle data = getNewBundle();
-            data.putString(Flowr.DEEP_LINK_URL, uri.toString());
-            Iterator<String> params = getNamedGroupCandidates(pattern).iterator();
-
-            //start at 1 because 0 is the searched string
-            int i = 1;
-            while (params.hasNext()) {
-                String variableName = params.next();
-                data.putString(variableName, m.group(i));
-                i++;
+    protected void addRoute(String url) {
+        routes.add(DeepLinkRoute.parse(routes.size(), url, null, null, this));
+        routeTrie = null;
+    }
+
+    /**
+     * Add the routes of a binary route table generated by the annotation processor, read from
+     * a resource located next to the class of this handler. The fragment class of each route
+     * is loaded by name once a link matches the route.
+     *
+     * @param name the name of the route table resource.
+     * @throws IllegalStateException    if the route table could not be read.
+     * @throws IllegalArgumentException if a URL pattern of the table is invalid.
+     */
+    protected void addRouteTable(String name) {
+        InputStream input = getClass().getResourceAsStream(name);
+        if (input == null) {
+            throw new IllegalStateException("Route table not found: " + name);
+        }
+
+        try {
+            addRouteTable(input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the route table " + name, e);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // Nothing left to read.
             }
+        }
+    }
+
+    @VisibleForTesting
+    void addRouteTable(InputStream input) throws IOException {
+        DeepLinkRouteTable table = DeepLinkRouteTable.read(input);
 
-            return data;
+        for (int i = 0; i < table.patterns.length; i++) {
+            routes.add(DeepLinkRoute.parse(routes.size(), table.patterns[i], null,
+                    table.fragmentNames[i], this));
         }
 
+        routeTrie = null;
+    }
+
+    /**
+     * Returns the fragment class of a route added through {@link #addRoute(String)}, called
+     * the first time the class is needed. Routes are identified by the order in which they
+     * were added, starting at 0. The routes of a route table are loaded by name.
+     *
+     * @param id the identifier of the route.
+     * @return the fragment class to be linked to the route.
+     */
+    @SuppressWarnings("unchecked")
+    protected Class<? extends T> loadFragment(int id) {
+        DeepLinkRoute<T> route = getRoutes().get(id);
+
+        if (route.fragmentName == null) {
+            throw new IllegalStateException("No fragment class for route " + id + ": "
+                    + route.pattern);
+        }
+
+        try {
+            return (Class<? extends T>) Class.forName(route.fragmentName, true,
+                    getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Fragment class not found for route " + id + ": "
+                    + route.pattern, e);
+        }
+    }
+
+    /**
+     * Create a new instance of a fragment class without reflection, override this method to
+     * call the constructor of the fragments of the routes of this handler.
+     *
+     * @param fragment the class of the fragment to create.
+     * @return the new fragment, or null if the fragment should be created through reflection.
+     */
+    @Nullable
+    @Override
+    public Fragment newFragment(@NonNull Class<?> fragment) {
         return null;
     }
 
-    private String getRegexPattern(String pattern) {
-        return pattern.replaceAll("\\{(.+?)\\}", "(\\.+?)");
+    /**
+     * Find the route matching the specified link. Routes are identified by the order in
+     * which they were added through {@link #addFragment(String, Class)},
+     * {@link #addRoute(String)} or {@link #addRouteTable(String)}, starting at 0.
+     * <p/>
+     * Override this method to provide a dedicated matcher, it must try the routes requiring
+     * the scheme and host of the link first, then the routes requiring its host, then the routes
+     * requiring its scheme, then the routes accepting any link. Within each of these, literal
+     * segments take precedence over path variables, which take precedence over wildcards, and
+     * the routes sharing the same path shape are checked with
+     * {@link #matchesRoute(DeepLinkMatch, int)} from the most to the least specific one.
+     * Routes ending with a catch-all are only tried when no other route matched, from the one
+     * with the most segments.
+     *
+     * @param match the link to match.
+     * @return the identifier of the matching route, or {@link #NO_ROUTE} if none was found.
+     */
+    protected int findRoute(@NonNull DeepLinkMatch match) {
+        // routes are added to the trie in order, so their identifiers are the same
+        return getRouteTrie().find(match);
     }
 
-    private List<String> getNamedGroupCandidates(String regex) {
-        List<String> namedGroups = new ArrayList<>();
+    /**
+     * Check whether the scheme, host and query keys of a link satisfy the constraints of a route
+     * whose path shape matches the link. The route must be the last one checked before being
+     * returned by {@link #findRoute(DeepLinkMatch)}, since its query values are kept by the match.
+     *
+     * @param match the link to check.
+     * @param id    the identifier of the route.
+     * @return true if the link matches the route.
+     */
+    protected final boolean matchesRoute(@NonNull DeepLinkMatch match, int id) {
+        return getRoutes().get(id).matches(match);
+    }
 
-        Matcher m = NAMED_PARAM_PATTERN.matcher(regex);
+    private synchronized DeepLinkRouteTrie<T> getRouteTrie() {
+        if (routeTrie == null) {
+            DeepLinkRouteTrie<T> trie = new DeepLinkRouteTrie<>();
+            for (DeepLinkRoute<T> route : getRoutes()) {
+                trie.add(route);
+            }
 
-        while (m.find()) {
-            String variableName = m.group(1);
-            namedGroups.add(variableName);
+            routeTrie = trie;
         }
 
-        return namedGroups;
+        return routeTrie;
+    }
+
+    /**
+     * Generates a bundle of the url named path variables and parameters.
+     *
+     * @param match the url to generate the bundle from.
+     * @param route the route matched by the url.
+     * @return a bundle containing all path variables and query parameters.
+     */
+    private Bundle bundleUriInfo(DeepLinkMatch match, DeepLinkRoute<T> route) {
+        Bundle data = getNewBundle();
+        data.putString(Flowr.DEEP_LINK_URL, match.uri.toString());
+        route.putParams(data, match);
+        return data;
     }
 
     @VisibleForTesting
@@ -106,12 +251,19 @@ public class AbstractFlowrDeepLinkHandler<T extends Fragment & FlowrFragment>
     public FlowrDeepLinkInfo<T> getDeepLinkInfoForIntent(@NonNull Intent intent) {
         Uri uri = intent.getData();
 
-        if (uri != null) {
-            for (String uriPattern : linkFragmentMap.keySet()) {
-                Bundle data = bundleUriInfo(uri, uriPattern);
-                if (data != null) {
-                    return new FlowrDeepLinkInfo<>(data, linkFragmentMap.get(uriPattern));
+        if (uri != null && uri.getPath() != null) {
+            DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+
+            try {
+                int id = findRoute(match);
+
+                if (id != NO_ROUTE) {
+                    DeepLinkRoute<T> route = getRoutes().get(id);
+                    return new FlowrDeepLinkInfo<>(bundleUriInfo(match, route),
+                            route.getFragment());
                 }
+            } finally {
+                match.recycle();
             }
         }
 
@@ -0,0 +1,153 @@
+package com.fueled.flowr.internal;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact result of resolving a batch of links with {@link FlowrDeepLinkIndex#resolve(List)}.
+ * Only the identifier of the matching route and the position of its path variables are kept
+ * for each link, the deep link info is built on demand with {@link #getDeepLinkInfo(int)}.
+ */
+public final class DeepLinkBatchResult {
+
+    private final FlowrDeepLinkIndex index;
+    private final List<Uri> uris;
+    private final int[] routeIds;
+
+    /**
+     * The start and end of each path variable in the path of each link, with a fixed
+     * number of path variables per link.
+     */
+    private final int[] paramSpans;
+    private final int paramStride;
+
+    DeepLinkBatchResult(FlowrDeepLinkIndex index, List<Uri> uris, int maxParamCount) {
+        this.index = index;
+        this.uris = uris;
+        this.routeIds = new int[uris.size()];
+        this.paramStride = maxParamCount * 2;
+        this.paramSpans = new int[uris.size() * paramStride];
+
+        Arrays.fill(routeIds, DeepLinkRouteTrie.NO_ROUTE);
+    }
+
+    void set(int position, int routeId, DeepLinkRoute<?> route, DeepLinkMatch match) {
+        routeIds[position] = routeId;
+
+        int offset = position * paramStride;
+        for (int i = 0; i < route.paramIndices.length; i++) {
+            paramSpans[offset + i * 2] = match.segmentStart(route.paramIndices[i]);
+            paramSpans[offset + i * 2 + 1] = match.segmentEnd(route.paramIndices[i]);
+        }
+    }
+
+    /**
+     * Returns the number of links in the batch.
+     *
+     * @return the number of links.
+     */
+    public int size() {
+        return routeIds.length;
+    }
+
+    /**
+     * Returns whether a link of the batch matched a route.
+     *
+     * @param position the position of the link in the batch.
+     * @return true if the link was resolved.
+     */
+    public boolean isResolved(int position) {
+        return routeIds[position] != DeepLinkRouteTrie.NO_ROUTE;
+    }
+
+    /**
+     * Returns the identifier of the route matched by a link, routes are identified by the order
+     * in which the handlers of the index registered them, starting at 0.
+     *
+     * @param position the position of the link in the batch.
+     * @return the identifier of the route, or -1 if the link was not resolved.
+     */
+    public int getRouteId(int position) {
+        return routeIds[position];
+    }
+
+    /**
+     * Returns the fragment class linked to the route matched by a link.
+     *
+     * @param position the position of the link in the batch.
+     * @return the fragment class, or null if the link was not resolved.
+     */
+    @Nullable
+    public Class<?> getFragment(int position) {
+        return isResolved(position) ? index.getRoute(routeIds[position]).getFragment() : null;
+    }
+
+    /**
+     * Returns the number of path variables of the route matched by a link.
+     *
+     * @param position the position of the link in the batch.
+     * @return the number of path variables, 0 if the link was not resolved.
+     */
+    public int getParamCount(int position) {
+        return isResolved(position) ? index.getRoute(routeIds[position]).paramNames.length : 0;
+    }
+
+    /**
+     * Returns the name of a path variable of the route matched by a link.
+     *
+     * @param position the position of the link in the batch.
+     * @param param    the position of the path variable in the route.
+     * @return the name of the path variable.
+     */
+    public String getParamName(int position, int param) {
+        return index.getRoute(routeIds[position]).paramNames[param];
+    }
+
+    /**
+     * Returns where the value of a path variable starts in the path of a link.
+     *
+     * @param position the position of the link in the batch.
+     * @param param    the position of the path variable in the route.
+     * @return the offset of the value in {@link Uri#getPath()}.
+     */
+    public int getParamStart(int position, int param) {
+        return paramSpans[position * paramStride + param * 2];
+    }
+
+    /**
+     * Returns where the value of a path variable ends in the path of a link.
+     *
+     * @param position the position of the link in the batch.
+     * @param param    the position of the path variable in the route.
+     * @return the offset following the value in {@link Uri#getPath()}.
+     */
+    public int getParamEnd(int position, int param) {
+        return paramSpans[position * paramStride + param * 2 + 1];
+    }
+
+    /**
+     * Build the deep link info of a link, including the bundle of its path variables
+     * and query parameters.
+     *
+     * @param position the position of the link in the batch.
+     * @return the deep link info, or null if the link was not resolved.
+     */
+    @Nullable
+    public FlowrDeepLinkInfo getDeepLinkInfo(int position) {
+        if (!isResolved(position)) {
+            return null;
+        }
+
+        Uri uri = uris.get(position);
+        DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+
+        try {
+            return index.toDeepLinkInfo(match, routeIds[position]);
+        } finally {
+            match.recycle();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.fueled.flowr.internal;
+
+import android.net.Uri;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+
+/**
+ * A link being resolved by a deep link handler, split into the parts routes are matched against.
+ * It also keeps the query values found by the last route checked against it, so that they are
+ * only looked up once.
+ * <p/>
+ * Segments are only tracked by their position in the path, and a single instance is reused by
+ * each thread through {@link #obtain(Uri, String)}, so that matching a link does not allocate.
+ * An instance must therefore not be kept once the link is resolved.
+ */
+public final class DeepLinkMatch {
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 8;
+    private static final int INITIAL_QUERY_CAPACITY = 4;
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private static final ThreadLocal<DeepLinkMatch> MATCHES = new ThreadLocal<DeepLinkMatch>() {
+        @Override
+        protected DeepLinkMatch initialValue() {
+            return new DeepLinkMatch();
+        }
+    };
+
+    Uri uri;
+    String scheme;
+    String host;
+
+    private String path;
+    private String query;
+
+    /**
+     * The start and end of each non empty segment in the path.
+     */
+    private int[] segmentBounds = new int[INITIAL_SEGMENT_CAPACITY * 2];
+    private int segmentCount;
+
+    /**
+     * The start and end of the value of each query key of the last checked route, -1 if missing.
+     */
+    private int[] querySpans = new int[INITIAL_QUERY_CAPACITY * 2];
+
+    private DeepLinkMatch() {
+    }
+
+    /**
+     * Returns the match instance of the calling thread, reset to the specified link.
+     * {@link #recycle()} should be called once the link is resolved.
+     *
+     * @param uri  the link to match.
+     * @param path the path of the link.
+     * @return the match of the calling thread.
+     */
+    static DeepLinkMatch obtain(Uri uri, String path) {
+        DeepLinkMatch match = MATCHES.get();
+        match.uri = uri;
+        match.scheme = uri.getScheme();
+        match.host = uri.getHost();
+        match.query = uri.getEncodedQuery();
+        match.path = path;
+        match.splitPath();
+        return match;
+    }
+
+    /**
+     * Release the references to the last matched link.
+     */
+    void recycle() {
+        uri = null;
+        scheme = null;
+        host = null;
+        path = null;
+        query = null;
+        segmentCount = 0;
+    }
+
+    private void splitPath() {
+        segmentCount = 0;
+        int length = path.length();
+        int start = 0;
+
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end > start) {
+                if (segmentCount * 2 == segmentBounds.length) {
+                    segmentBounds = Arrays.copyOf(segmentBounds, segmentBounds.length * 2);
+                }
+
+                segmentBounds[segmentCount * 2] = start;
+                segmentBounds[segmentCount * 2 + 1] = end;
+                segmentCount++;
+            }
+
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Check whether the scheme of the link is equal to the specified scheme, ignoring case.
+     *
+     * @param expected the scheme to compare the link to.
+     * @return true if the link has this scheme.
+     */
+    public boolean schemeEquals(String expected) {
+        return expected.equalsIgnoreCase(scheme);
+    }
+
+    /**
+     * Check whether the host of the link is equal to the specified host, ignoring case.
+     *
+     * @param expected the host to compare the link to.
+     * @return true if the link has this host.
+     */
+    public boolean hostEquals(String expected) {
+        return expected.equalsIgnoreCase(host);
+    }
+
+    /**
+     * Returns the number of non empty segments in the path of the link.
+     *
+     * @return the number of path segments.
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Returns a segment of the path of the link.
+     *
+     * @param index the position of the segment.
+     * @return the decoded path segment.
+     */
+    public String segment(int index) {
+        return path.substring(segmentStart(index), segmentEnd(index));
+    }
+
+    /**
+     * Returns the hash code of a segment of the path, equal to the {@link String#hashCode()} of
+     * {@link #segment(int)} but computed without allocating.
+     *
+     * @param index the position of the segment.
+     * @return the hash code of the segment.
+     */
+    public int segmentHash(int index) {
+        int hash = 0;
+        for (int i = segmentStart(index), end = segmentEnd(index); i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Check whether a segment of the path is equal to the specified literal, without allocating.
+     *
+     * @param index   the position of the segment.
+     * @param literal the value to compare the segment to.
+     * @return true if the segment is equal to the literal.
+     */
+    public boolean segmentEquals(int index, String literal) {
+        int start = segmentStart(index);
+        return segmentEnd(index) - start == literal.length()
+                && path.regionMatches(start, literal, 0, literal.length());
+    }
+
+    /**
+     * Check whether a segment of the path is a valid value for a path variable type,
+     * without allocating.
+     *
+     * @param index the position of the segment.
+     * @param type  the type of the path variable.
+     * @return true if the segment can be converted to the type.
+     */
+    public boolean segmentAccepts(int index, DeepLinkParamType type) {
+        return type.accepts(path, segmentStart(index), segmentEnd(index));
+    }
+
+    /**
+     * Returns the hash of the segments of the path joined by {@code /}, computed without
+     * allocating. Generated matchers look up their static routes with it, so it must stay
+     * identical to the hash computed by the annotation processor: 32-bit FNV-1a over the UTF-16
+     * characters starting from the seed xor the FNV offset basis, with the upper half of
+     * the result then folded into the lower half.
+     *
+     * @param seed the seed of the hash.
+     * @return the hash of the path.
+     */
+    public int pathHash(int seed) {
+        int hash = seed ^ FNV_OFFSET_BASIS;
+
+        for (int index = 0; index < segmentCount; index++) {
+            if (index > 0) {
+                hash = (hash ^ '/') * FNV_PRIME;
+            }
+
+            for (int i = segmentStart(index), end = segmentEnd(index); i < end; i++) {
+                hash = (hash ^ path.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Check whether the segments of the path joined by {@code /} are equal to the specified
+     * path, without allocating.
+     *
+     * @param expected the path to compare the link to, without leading or trailing slash.
+     * @return true if the link has this path.
+     */
+    public boolean pathEquals(String expected) {
+        int position = 0;
+
+        for (int index = 0; index < segmentCount; index++) {
+            if (index > 0) {
+                if (position == expected.length() || expected.charAt(position) != '/') {
+                    return false;
+                }
+
+                position++;
+            }
+
+            int start = segmentStart(index);
+            int length = segmentEnd(index) - start;
+            if (!path.regionMatches(start, expected, position, length)) {
+                return false;
+            }
+
+            position += length;
+        }
+
+        return position == expected.length();
+    }
+
+    /**
+     * Returns the position in the path of the link where a segment starts.
+     *
+     * @param index the position of the segment.
+     * @return the offset of the first character of the segment.
+     */
+    int segmentStart(int index) {
+        return segmentBounds[index * 2];
+    }
+
+    /**
+     * Returns the position in the path of the link where a segment ends.
+     *
+     * @param index the position of the segment.
+     * @return the offset following the last character of the segment.
+     */
+    int segmentEnd(int index) {
+        return segmentBounds[index * 2 + 1];
+    }
+
+    /**
+     * Look for the specified keys in the query of the link in a single pass, keeping track of
+     * where their values are. Keys are compared in their encoded form, and only the first value
+     * of a repeated key is kept.
+     *
+     * @param keys     the query keys to look for.
+     * @param optional whether each key may be missing from the query.
+     * @return true if all the keys that are not optional were found.
+     */
+    boolean matchQuery(String[] keys, boolean[] optional) {
+        if (querySpans.length < keys.length * 2) {
+            querySpans = new int[keys.length * 2];
+        }
+
+        Arrays.fill(querySpans, -1);
+
+        int length = query != null ? query.length() : 0;
+        int start = 0;
+
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            int separator = query.indexOf('=', start);
+            if (separator < 0 || separator > end) {
+                separator = end;
+            }
+
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                if (querySpans[i * 2] < 0 && key.length() == separator - start
+                        && query.regionMatches(start, key, 0, key.length())) {
+                    querySpans[i * 2] = Math.min(separator + 1, end);
+                    querySpans[i * 2 + 1] = end;
+                    break;
+                }
+            }
+
+            start = end + 1;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (!optional[i] && querySpans[i * 2] < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the decoded value found for a query key by the last call to
+     * {@link #matchQuery(String[], boolean[])}.
+     *
+     * @param index the position of the key.
+     * @return the decoded value, or null if the key was not found.
+     */
+    String queryValue(int index) {
+        int start = querySpans[index * 2];
+        if (start < 0) {
+            return null;
+        }
+
+        String value = query.substring(start, querySpans[index * 2 + 1]);
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
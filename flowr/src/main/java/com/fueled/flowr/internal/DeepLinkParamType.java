@@ -0,0 +1,210 @@
+package com.fueled.flowr.internal;
+
+import android.os.Bundle;
+
+/**
+ * The types a deep link path variable can be declared with, as in {@code /order/{id:long}}.
+ * Path variables declared without a type are strings.
+ * <p/>
+ * The types are declared in the order they are tried when several path variables with different
+ * types are found at the same position, from the most to the least restrictive.
+ */
+public enum DeepLinkParamType {
+
+    BOOLEAN("boolean") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return matchesIgnoreCase(value, start, end, "true")
+                    || matchesIgnoreCase(value, start, end, "false");
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putBoolean(name, Boolean.parseBoolean(value));
+        }
+    },
+
+    INT("int") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return isInteger(value, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putInt(name, Integer.parseInt(value));
+        }
+    },
+
+    LONG("long") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return isInteger(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putLong(name, Long.parseLong(value));
+        }
+    },
+
+    FLOAT("float") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return isDecimal(value, start, end);
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putFloat(name, Float.parseFloat(value));
+        }
+    },
+
+    DOUBLE("double") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return isDecimal(value, start, end);
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putDouble(name, Double.parseDouble(value));
+        }
+    },
+
+    STRING("string") {
+        @Override
+        boolean accepts(String value, int start, int end) {
+            return true;
+        }
+
+        @Override
+        void put(Bundle data, String name, String value) {
+            data.putString(name, value);
+        }
+    };
+
+    private final String typeName;
+
+    DeepLinkParamType(String typeName) {
+        this.typeName = typeName;
+    }
+
+    /**
+     * Check whether a path segment is a valid value for this type, without allocating.
+     *
+     * @param value the path segment to check.
+     * @return true if the value can be converted to this type.
+     */
+    public boolean accepts(String value) {
+        return accepts(value, 0, value.length());
+    }
+
+    /**
+     * Check whether a region of a string, such as a path segment within a path, is a valid
+     * value for this type, without allocating.
+     *
+     * @param value the string containing the value to check.
+     * @param start the offset of the first character of the value.
+     * @param end   the offset following the last character of the value.
+     * @return true if the value can be converted to this type.
+     */
+    abstract boolean accepts(String value, int start, int end);
+
+    /**
+     * Convert a value accepted by this type and put it into a bundle.
+     *
+     * @param data  the bundle to put the value in.
+     * @param name  the name of the path variable.
+     * @param value the path segment to convert.
+     */
+    abstract void put(Bundle data, String name, String value);
+
+    /**
+     * Returns the type with the specified name, as used in URL patterns.
+     *
+     * @param typeName the name of the type.
+     * @return the matching type, or null if there is none.
+     */
+    static DeepLinkParamType fromName(String typeName) {
+        for (DeepLinkParamType type : values()) {
+            if (type.typeName.equals(typeName)) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean matchesIgnoreCase(String value, int start, int end, String expected) {
+        return end - start == expected.length()
+                && value.regionMatches(true, start, expected, 0, expected.length());
+    }
+
+    private static boolean isInteger(String value, int start, int end, long min, long max) {
+        boolean negative = end > start && value.charAt(start) == '-';
+        int digitsStart = negative ? start + 1 : start;
+
+        if (end == digitsStart) {
+            return false;
+        }
+
+        // accumulate negatively since the min value has a larger magnitude than the max value
+        long result = 0;
+        for (int i = digitsStart; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                return false;
+            }
+
+            result = result * 10 - digit;
+        }
+
+        return negative ? result >= min : result != Long.MIN_VALUE && -result <= max;
+    }
+
+    private static boolean isDecimal(String value, int start, int end) {
+        int i = end > start && (value.charAt(start) == '-' || value.charAt(start) == '+')
+                ? start + 1 : start;
+
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
+            return false;
+        }
+
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+
+            int exponentStart = i;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+            }
+
+            if (i == exponentStart) {
+                return false;
+            }
+        }
+
+        return i == end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,398 @@
+package com.fueled.flowr.internal;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+
+import com.fueled.flowr.FlowrFragment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single deep link URL pattern parsed into its scheme, host, path segments and query keys,
+ * along with the fragment class it should open. The fragment class can also be loaded by the
+ * handler of the route the first time it is needed.
+ */
+final class DeepLinkRoute<T extends Fragment & FlowrFragment> {
+
+    private static final char PARAM_START = '{';
+    private static final char PARAM_END = '}';
+    private static final char PARAM_TYPE_SEPARATOR = ':';
+    private static final char QUERY_START = '?';
+    private static final char QUERY_SEPARATOR = '&';
+    private static final char OPTIONAL_QUERY_KEY = '?';
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String ANY = "*";
+    private static final char WILDCARD_CHAR = '*';
+
+    /**
+     * The segment matching any single path segment.
+     */
+    static final String WILDCARD = "*";
+
+    /**
+     * The last segment matching any number of path segments, including none.
+     */
+    static final String CATCH_ALL = "**";
+
+    final int id;
+    final String pattern;
+
+    /**
+     * The binary name of the fragment class when the route was read from a route table,
+     * else null.
+     */
+    final String fragmentName;
+
+    /**
+     * The handler loading the fragment class of the route, or null if it was known when
+     * the route was added.
+     */
+    private final AbstractFlowrDeepLinkHandler<T> loader;
+    private volatile Class<? extends T> fragment;
+
+    /**
+     * The scheme the link must have, or null if any scheme is accepted.
+     */
+    final String scheme;
+
+    /**
+     * The host the link must have, or null if any host is accepted.
+     */
+    final String host;
+
+    /**
+     * The literal value of each path segment, {@link #WILDCARD} for a wildcard, or null when
+     * the segment is a named path variable. A trailing {@link #CATCH_ALL} is not included.
+     */
+    final String[] segments;
+
+    /**
+     * Whether the pattern ends with {@link #CATCH_ALL}, the route then matches any link whose
+     * path starts with its segments.
+     */
+    final boolean catchAll;
+
+    /**
+     * The type of each path segment, or null when the segment is a literal.
+     */
+    final DeepLinkParamType[] types;
+
+    /**
+     * The names of the path variables declared by the pattern.
+     */
+    final String[] paramNames;
+
+    /**
+     * The position of the path segment that holds the value for each entry in {@link #paramNames}.
+     */
+    final int[] paramIndices;
+
+    /**
+     * The query keys declared by the pattern, their values are put in the bundle as strings.
+     */
+    final String[] queryKeys;
+
+    /**
+     * Whether each entry in {@link #queryKeys} may be missing from the link.
+     */
+    final boolean[] queryOptional;
+
+    private final int requiredQueryCount;
+
+    private DeepLinkRoute(int id, String pattern, Class<? extends T> fragment,
+                          String fragmentName, AbstractFlowrDeepLinkHandler<T> loader,
+                          String scheme, String host, String[] segments, boolean catchAll,
+                          DeepLinkParamType[] types, String[] paramNames, int[] paramIndices,
+                          String[] queryKeys, boolean[] queryOptional) {
+        this.id = id;
+        this.pattern = pattern;
+        this.fragment = fragment;
+        this.fragmentName = fragmentName;
+        this.loader = loader;
+        this.scheme = scheme;
+        this.host = host;
+        this.segments = segments;
+        this.catchAll = catchAll;
+        this.types = types;
+        this.paramNames = paramNames;
+        this.paramIndices = paramIndices;
+        this.queryKeys = queryKeys;
+        this.queryOptional = queryOptional;
+
+        int required = 0;
+        for (boolean optional : queryOptional) {
+            required += optional ? 0 : 1;
+        }
+
+        this.requiredQueryCount = required;
+    }
+
+    /**
+     * Parse a URL pattern such as {@code /m/{id}/details}, {@code /order/{id:long}} or
+     * {@code https://fueled.com/search?q&page?} into a new route. The scheme and host are optional,
+     * {@code *} accepts any value, and query keys ending with {@code ?} are optional.
+     * A {@code *} path segment matches any single segment, and a trailing {@code **} matches
+     * any number of segments, as in {@code /cms/{slug}/*} or {@code /help/**}.
+     *
+     * @param id           the identifier of the route.
+     * @param pattern      the URL pattern to parse.
+     * @param fragment     the fragment class to be linked to the URL pattern, or null to load
+     *                     it through the loader.
+     * @param fragmentName the binary name of the fragment class if it is loaded by name.
+     * @param loader       the handler loading the fragment class, if it is not specified.
+     * @return the parsed route.
+     * @throws IllegalArgumentException if the pattern contains a malformed path variable,
+     *                                  a path variable with an unknown type, a misplaced wildcard
+     *                                  or an invalid query key.
+     */
+    static <T extends Fragment & FlowrFragment> DeepLinkRoute<T> parse(
+            int id, String pattern, Class<? extends T> fragment, String fragmentName,
+            AbstractFlowrDeepLinkHandler<T> loader) {
+        String scheme = null;
+        String host = null;
+        String path = pattern;
+
+        int schemeEnd = pattern.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd >= 0) {
+            int hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+            int hostEnd = hostStart;
+            while (hostEnd < pattern.length() && pattern.charAt(hostEnd) != '/'
+                    && pattern.charAt(hostEnd) != QUERY_START) {
+                hostEnd++;
+            }
+
+            scheme = anyIfEmpty(pattern.substring(0, schemeEnd));
+            host = anyIfEmpty(pattern.substring(hostStart, hostEnd));
+            path = pattern.substring(hostEnd);
+        }
+
+        String query = "";
+        int queryStart = path.indexOf(QUERY_START);
+        if (queryStart >= 0) {
+            query = path.substring(queryStart + 1);
+            path = path.substring(0, queryStart);
+        }
+
+        List<String> parts = splitPath(path);
+        boolean catchAll = !parts.isEmpty() && CATCH_ALL.equals(parts.get(parts.size() - 1));
+        if (catchAll) {
+            parts.remove(parts.size() - 1);
+        }
+
+        String[] segments = new String[parts.size()];
+        DeepLinkParamType[] types = new DeepLinkParamType[parts.size()];
+        List<String> names = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+
+        for (int i = 0; i < segments.length; i++) {
+            String part = parts.get(i);
+
+            if (part.charAt(0) == PARAM_START && part.charAt(part.length() - 1) == PARAM_END) {
+                String name = part.substring(1, part.length() - 1);
+                types[i] = DeepLinkParamType.STRING;
+
+                int separator = name.indexOf(PARAM_TYPE_SEPARATOR);
+                if (separator >= 0) {
+                    types[i] = DeepLinkParamType.fromName(name.substring(separator + 1));
+                    name = name.substring(0, separator);
+
+                    if (types[i] == null) {
+                        throw new IllegalArgumentException("Unknown type for path variable '" + name
+                                + "' in: " + pattern);
+                    }
+                }
+
+                checkParamName(pattern, name);
+                if (names.contains(name)) {
+                    throw new IllegalArgumentException("Duplicate path variable '" + name + "' in: "
+                            + pattern);
+                }
+
+                names.add(name);
+                indices.add(i);
+            } else if (part.indexOf(PARAM_START) >= 0 || part.indexOf(PARAM_END) >= 0) {
+                throw new IllegalArgumentException("Path variables must span a whole path segment: "
+                        + pattern);
+            } else if (CATCH_ALL.equals(part)) {
+                throw new IllegalArgumentException("'" + CATCH_ALL + "' must be the last path "
+                        + "segment: " + pattern);
+            } else if (!WILDCARD.equals(part) && part.indexOf(WILDCARD_CHAR) >= 0) {
+                throw new IllegalArgumentException("Wildcards must span a whole path segment: "
+                        + pattern);
+            } else {
+                segments[i] = part;
+            }
+        }
+
+        int[] paramIndices = new int[indices.size()];
+        for (int i = 0; i < paramIndices.length; i++) {
+            paramIndices[i] = indices.get(i);
+        }
+
+        String[] paramNames = names.toArray(new String[names.size()]);
+        List<String> queryKeys = new ArrayList<>();
+        List<Boolean> queryOptional = new ArrayList<>();
+
+        for (String key : query.split(String.valueOf(QUERY_SEPARATOR))) {
+            if (key.isEmpty()) {
+                continue;
+            }
+
+            boolean optional = key.charAt(key.length() - 1) == OPTIONAL_QUERY_KEY;
+            if (optional) {
+                key = key.substring(0, key.length() - 1);
+            }
+
+            if (key.isEmpty() || key.indexOf('=') >= 0 || key.indexOf(PARAM_START) >= 0
+                    || key.indexOf(PARAM_END) >= 0 || key.indexOf(OPTIONAL_QUERY_KEY) >= 0) {
+                throw new IllegalArgumentException("Invalid query key '" + key + "' in: "
+                        + pattern);
+            }
+
+            if (names.contains(key)) {
+                throw new IllegalArgumentException("Duplicate variable '" + key + "' in: "
+                        + pattern);
+            }
+
+            names.add(key);
+            queryKeys.add(key);
+            queryOptional.add(optional);
+        }
+
+        boolean[] optional = new boolean[queryOptional.size()];
+        for (int i = 0; i < optional.length; i++) {
+            optional[i] = queryOptional.get(i);
+        }
+
+        return new DeepLinkRoute<>(id, pattern, fragment, fragmentName, loader, scheme, host,
+                segments, catchAll, types, paramNames, paramIndices,
+                queryKeys.toArray(new String[queryKeys.size()]), optional);
+    }
+
+    /**
+     * Returns the fragment class opened by this route, loading it through the handler of
+     * the route the first time it is needed.
+     *
+     * @return the fragment class.
+     */
+    Class<? extends T> getFragment() {
+        Class<? extends T> loaded = fragment;
+        if (loaded == null) {
+            // loading the same class twice is harmless, so no lock is needed
+            loaded = loader.loadFragment(id);
+            fragment = loaded;
+        }
+
+        return loaded;
+    }
+
+    private static String anyIfEmpty(String value) {
+        return value.isEmpty() || ANY.equals(value) ? null : value;
+    }
+
+    /**
+     * Check whether the scheme, host and query of a link satisfy the constraints of this route,
+     * the values of its query keys are looked up along the way.
+     *
+     * @param match the link whose path matches this route.
+     * @return true if the link matches this route.
+     */
+    boolean matches(DeepLinkMatch match) {
+        if (scheme != null && !scheme.equalsIgnoreCase(match.scheme)) {
+            return false;
+        }
+
+        if (host != null && !host.equalsIgnoreCase(match.host)) {
+            return false;
+        }
+
+        return queryKeys.length == 0 || match.matchQuery(queryKeys, queryOptional);
+    }
+
+    /**
+     * Whether this route should be checked before another route with the same path shape:
+     * routes requiring a host come first, then routes requiring a scheme, then routes requiring
+     * the most query keys.
+     *
+     * @param other the route with the same path shape.
+     * @return true if this route is more specific than the other one.
+     */
+    boolean isMoreSpecificThan(DeepLinkRoute<?> other) {
+        if ((host != null) != (other.host != null)) {
+            return host != null;
+        }
+
+        if ((scheme != null) != (other.scheme != null)) {
+            return scheme != null;
+        }
+
+        return requiredQueryCount > other.requiredQueryCount;
+    }
+
+    /**
+     * Put the values of the path variables of this route into a bundle, converted
+     * to their declared type, along with the values of the query keys found in the link.
+     *
+     * @param data  the bundle to put the values in.
+     * @param match the link matched by this route.
+     */
+    void putParams(Bundle data, DeepLinkMatch match) {
+        for (int i = 0; i < paramIndices.length; i++) {
+            int index = paramIndices[i];
+            types[index].put(data, paramNames[i], match.segment(index));
+        }
+
+        for (int i = 0; i < queryKeys.length; i++) {
+            String value = match.queryValue(i);
+            if (value != null) {
+                data.putString(queryKeys[i], value);
+            }
+        }
+    }
+
+    /**
+     * Split a path into its non empty segments, so that {@code /a//b/} yields {@code [a, b]}.
+     *
+     * @param path the path to split.
+     * @return the list of path segments.
+     */
+    static List<String> splitPath(String path) {
+        List<String> segments = new ArrayList<>();
+        int length = path.length();
+        int start = 0;
+
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+
+            start = end + 1;
+        }
+
+        return segments;
+    }
+
+    private static void checkParamName(String pattern, String name) {
+        boolean valid = !name.isEmpty() && isLetter(name.charAt(0));
+
+        for (int i = 1; valid && i < name.length(); i++) {
+            char c = name.charAt(i);
+            valid = isLetter(c) || (c >= '0' && c <= '9');
+        }
+
+        if (!valid) {
+            throw new IllegalArgumentException("Invalid path variable name '" + name + "' in: "
+                    + pattern);
+        }
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,77 @@
+package com.fueled.flowr.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The routes of a deep link handler read from the binary route table generated by the annotation
+ * processor, used for large route sets instead of registering each route from generated code.
+ * <p/>
+ * A table starts with the {@link #MAGIC} number as an int and the {@link #VERSION} of the format
+ * as an unsigned short. Then comes the string table: the number of strings as an int, then
+ * the strings sorted in natural order, each one written as the length of the prefix it shares
+ * with the previous string as an unsigned short followed by its remaining characters in modified
+ * UTF-8. The number of routes follows as an int, then for each route in registration order the
+ * positions of its URL pattern and of the binary name of its fragment class in the string table,
+ * both as ints.
+ */
+final class DeepLinkRouteTable {
+
+    /**
+     * The first bytes of a route table, "FLWR" in ASCII.
+     */
+    static final int MAGIC = 0x464c5752;
+    static final int VERSION = 1;
+
+    /**
+     * The URL pattern of each route.
+     */
+    final String[] patterns;
+
+    /**
+     * The binary name of the fragment class of each route, shared by the routes of
+     * the same fragment.
+     */
+    final String[] fragmentNames;
+
+    private DeepLinkRouteTable(String[] patterns, String[] fragmentNames) {
+        this.patterns = patterns;
+        this.fragmentNames = fragmentNames;
+    }
+
+    /**
+     * Read a route table, the stream is not closed.
+     *
+     * @param input the stream to read the table from.
+     * @return the routes of the table.
+     * @throws IOException if the stream could not be read or is not a supported route table.
+     */
+    static DeepLinkRouteTable read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION) {
+            throw new IOException("Unsupported route table format");
+        }
+
+        String[] strings = new String[data.readInt()];
+        String previous = "";
+        for (int i = 0; i < strings.length; i++) {
+            int sharedLength = data.readUnsignedShort();
+            previous = previous.substring(0, sharedLength) + data.readUTF();
+            strings[i] = previous;
+        }
+
+        int count = data.readInt();
+        String[] patterns = new String[count];
+        String[] fragmentNames = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            patterns[i] = strings[data.readInt()];
+            fragmentNames[i] = strings[data.readInt()];
+        }
+
+        return new DeepLinkRouteTable(patterns, fragmentNames);
+    }
+}
@@ -0,0 +1,455 @@
+package com.fueled.flowr.internal;
+
+import android.support.v4.app.Fragment;
+
+import com.fueled.flowr.FlowrFragment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of deep link routes keyed by path segment. Each node has a child per literal segment,
+ * a child per path variable type and a wildcard child at that position, so resolving a path only
+ * walks its segments instead of testing every registered pattern. The query of the link is only
+ * checked against the routes found at the end of the path.
+ * <p/>
+ * Each node also records how many segments may follow it in a route that is not a catch-all,
+ * so that the walk only enters the branches holding a route as long as the path. Since a node
+ * is reached through a single path, each node is visited at most once per lookup and the cost of
+ * a lookup is bounded by the number of nodes holding a route of the length of the path, whatever
+ * the mix of literals, path variables and wildcards the routes are made of.
+ * <p/>
+ * Routes ending with a catch-all are kept by the node of their last fixed segment, and are only
+ * tried once no other route of the partition matched, from the node deepest in the path.
+ * Nodes track whether a catch-all route is below them so that this second walk only visits
+ * the relevant branches.
+ * <p/>
+ * Routes are first partitioned by the scheme and host they require, each partition having its own
+ * tree, so that a link is never checked against the routes of another host. Routes accepting any
+ * scheme and host are kept in a default partition. The partitions matching a link are tried from
+ * the most specific one: its scheme and host, then its host, then its scheme, then the default
+ * partition, a route requiring a host therefore takes precedence over any route that does not.
+ * <p/>
+ * Literal children are stored in an open addressing table keyed by the hash code of the segment,
+ * so that a path can be looked up from the segment positions of a {@link DeepLinkMatch} without
+ * allocating any string.
+ * <p/>
+ * Routes are identified by the order in which they were added to the trie, starting at 0.
+ */
+final class DeepLinkRouteTrie<T extends Fragment & FlowrFragment> {
+
+    /**
+     * Returned by {@link #find(DeepLinkMatch)} when none of the routes match the link.
+     */
+    static final int NO_ROUTE = -1;
+
+    private static final DeepLinkParamType[] PARAM_TYPES = DeepLinkParamType.values();
+    private static final int[] NO_ROUTES = new int[0];
+
+    private static final int INITIAL_PARTITION_CAPACITY = 4;
+
+    private final Node defaultRoot = new Node();
+    private final List<DeepLinkRoute<T>> routes = new ArrayList<>();
+
+    /**
+     * The partitions of the routes requiring a scheme or a host, in an open addressing table keyed
+     * by their case insensitive hash, or null if all the routes are in the default partition.
+     */
+    private Partition[] partitions;
+    private int partitionCount;
+
+    /**
+     * Add a route to the trie. Routes with the same path shape are checked from the most to
+     * the least specific, if they are as specific the first one added is checked first.
+     *
+     * @param route the route to add.
+     * @return the identifier of the route in this trie.
+     */
+    int add(DeepLinkRoute<T> route) {
+        int id = routes.size();
+        routes.add(route);
+
+        Node node = route.scheme == null && route.host == null
+                ? defaultRoot : partitionRoot(route.scheme, route.host);
+        for (int i = 0; i < route.segments.length; i++) {
+            String segment = route.segments[i];
+            node.hasCatchAll |= route.catchAll;
+            if (!route.catchAll) {
+                node.addRemainingLength(route.segments.length - i);
+            }
+
+            if (segment == null) {
+                node = node.paramChild(route.types[i]);
+            } else if (DeepLinkRoute.WILDCARD.equals(segment)) {
+                node = node.wildcardChild();
+            } else {
+                node = node.literalChild(segment);
+            }
+        }
+
+        if (route.catchAll) {
+            node.hasCatchAll = true;
+            node.catchAllRouteIds = insert(node.catchAllRouteIds, id, route);
+        } else {
+            node.addRemainingLength(0);
+            node.routeIds = insert(node.routeIds, id, route);
+        }
+
+        return id;
+    }
+
+    private int[] insert(int[] ids, int id, DeepLinkRoute<T> route) {
+        int position = 0;
+        while (position < ids.length && !route.isMoreSpecificThan(routes.get(ids[position]))) {
+            position++;
+        }
+
+        int[] newIds = new int[ids.length + 1];
+        System.arraycopy(ids, 0, newIds, 0, position);
+        System.arraycopy(ids, position, newIds, position + 1, ids.length - position);
+        newIds[position] = id;
+        return newIds;
+    }
+
+    /**
+     * Returns a route added to this trie.
+     *
+     * @param id the identifier of the route.
+     * @return the route.
+     */
+    DeepLinkRoute<T> get(int id) {
+        return routes.get(id);
+    }
+
+    /**
+     * Returns all the routes added to this trie, in order.
+     *
+     * @return the list of routes.
+     */
+    List<DeepLinkRoute<T>> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Find the route matching the specified link, in the partitions matching its scheme and host
+     * from the most specific one. Within a partition literal segments take precedence
+     * over path variables, which are tried from the most to the least restrictive type,
+     * then over wildcards. Catch-all routes are only tried when no other route matched.
+     *
+     * @param match the link to look up.
+     * @return the identifier of the matching route if found, else {@link #NO_ROUTE}.
+     */
+    int find(DeepLinkMatch match) {
+        if (partitions != null) {
+            int schemeHash = hashIgnoreCase(match.scheme);
+            int hostHash = hashIgnoreCase(match.host);
+
+            if (match.host != null) {
+                if (match.scheme != null) {
+                    int id = findInPartition(findPartitionRoot(match.scheme, schemeHash, match.host,
+                            hostHash), match);
+                    if (id != NO_ROUTE) {
+                        return id;
+                    }
+                }
+
+                int id = findInPartition(findPartitionRoot(null, 0, match.host, hostHash), match);
+                if (id != NO_ROUTE) {
+                    return id;
+                }
+            }
+
+            if (match.scheme != null) {
+                int id = findInPartition(findPartitionRoot(match.scheme, schemeHash, null, 0),
+                        match);
+                if (id != NO_ROUTE) {
+                    return id;
+                }
+            }
+        }
+
+        return findInPartition(defaultRoot, match);
+    }
+
+    private int findInPartition(Node root, DeepLinkMatch match) {
+        if (root == null) {
+            return NO_ROUTE;
+        }
+
+        int id = find(root, match, 0, false);
+        if (id == NO_ROUTE && root.hasCatchAll) {
+            id = find(root, match, 0, true);
+        }
+
+        return id;
+    }
+
+    /**
+     * Find the route matching the segments of the link from the specified position.
+     *
+     * @param catchAll true to only look for catch-all routes, else only for the other routes.
+     */
+    private int find(Node node, DeepLinkMatch match, int index, boolean catchAll) {
+        if (!catchAll && !node.hasRemainingLength(match.segmentCount() - index)) {
+            return NO_ROUTE;
+        }
+
+        if (index == match.segmentCount()) {
+            return findRoute(catchAll ? node.catchAllRouteIds : node.routeIds, match);
+        }
+
+        if (node.literalKeys != null) {
+            Node literal = node.literalChild(match, index);
+            if (literal != null && (!catchAll || literal.hasCatchAll)) {
+                int id = find(literal, match, index + 1, catchAll);
+                if (id != NO_ROUTE) {
+                    return id;
+                }
+            }
+        }
+
+        if (node.params != null) {
+            for (int i = 0; i < node.params.length; i++) {
+                Node param = node.params[i];
+                if (param != null && (!catchAll || param.hasCatchAll)
+                        && match.segmentAccepts(index, PARAM_TYPES[i])) {
+                    int id = find(param, match, index + 1, catchAll);
+                    if (id != NO_ROUTE) {
+                        return id;
+                    }
+                }
+            }
+        }
+
+        if (node.wildcard != null && (!catchAll || node.wildcard.hasCatchAll)) {
+            int id = find(node.wildcard, match, index + 1, catchAll);
+            if (id != NO_ROUTE) {
+                return id;
+            }
+        }
+
+        return catchAll ? findRoute(node.catchAllRouteIds, match) : NO_ROUTE;
+    }
+
+    private int findRoute(int[] ids, DeepLinkMatch match) {
+        for (int id : ids) {
+            if (routes.get(id).matches(match)) {
+                return id;
+            }
+        }
+
+        return NO_ROUTE;
+    }
+
+    /**
+     * Returns the root of the partition of the specified scheme and host, without allocating.
+     *
+     * @return the root of the partition, or null if no route requires this scheme and host.
+     */
+    private Node findPartitionRoot(String scheme, int schemeHash, String host, int hostHash) {
+        int hash = 31 * schemeHash + hostHash;
+        int mask = partitions.length - 1;
+
+        for (int slot = hash & mask; partitions[slot] != null; slot = (slot + 1) & mask) {
+            Partition partition = partitions[slot];
+            if (partition.hash == hash && partition.matches(scheme, host)) {
+                return partition.root;
+            }
+        }
+
+        return null;
+    }
+
+    private Node partitionRoot(String scheme, String host) {
+        if (partitions == null) {
+            partitions = new Partition[INITIAL_PARTITION_CAPACITY];
+        }
+
+        int schemeHash = hashIgnoreCase(scheme);
+        int hostHash = hashIgnoreCase(host);
+        Node root = findPartitionRoot(scheme, schemeHash, host, hostHash);
+        if (root != null) {
+            return root;
+        }
+
+        // keep the table at most half full so that probe sequences stay short
+        if ((partitionCount + 1) * 2 > partitions.length) {
+            Partition[] oldPartitions = partitions;
+            partitions = new Partition[oldPartitions.length * 2];
+
+            for (Partition partition : oldPartitions) {
+                if (partition != null) {
+                    insertPartition(partition);
+                }
+            }
+        }
+
+        Partition partition = new Partition(scheme, host, 31 * schemeHash + hostHash);
+        insertPartition(partition);
+        partitionCount++;
+        return partition.root;
+    }
+
+    private void insertPartition(Partition partition) {
+        int mask = partitions.length - 1;
+        int slot = partition.hash & mask;
+
+        while (partitions[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+
+        partitions[slot] = partition;
+    }
+
+    /**
+     * Returns a hash code of a scheme or host that is the same for values that are equal when
+     * ignoring case, computed without allocating.
+     *
+     * @param value the scheme or host, or null.
+     * @return the case insensitive hash code, 0 for null.
+     */
+    private static int hashIgnoreCase(String value) {
+        int hash = 0;
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+            }
+        }
+
+        return hash;
+    }
+
+    private static final class Partition {
+
+        private final String scheme;
+        private final String host;
+        private final int hash;
+        private final Node root = new Node();
+
+        private Partition(String scheme, String host, int hash) {
+            this.scheme = scheme;
+            this.host = host;
+            this.hash = hash;
+        }
+
+        private boolean matches(String otherScheme, String otherHost) {
+            return (scheme == null ? otherScheme == null : scheme.equalsIgnoreCase(otherScheme))
+                    && (host == null ? otherHost == null : host.equalsIgnoreCase(otherHost));
+        }
+    }
+
+    private static final class Node {
+
+        private static final int INITIAL_LITERAL_CAPACITY = 4;
+
+        private String[] literalKeys;
+        private Node[] literalNodes;
+        private int literalCount;
+        private Node[] params;
+        private Node wildcard;
+        private int[] routeIds = NO_ROUTES;
+        private int[] catchAllRouteIds = NO_ROUTES;
+
+        /**
+         * Whether a catch-all route is kept by this node or any node below it.
+         */
+        private boolean hasCatchAll;
+
+        /**
+         * The numbers of segments following this node in the routes that are not a catch-all,
+         * the bit of each number being set, the last bit standing for all the longer routes.
+         */
+        private long remainingLengths;
+
+        private void addRemainingLength(int length) {
+            remainingLengths |= 1L << Math.min(length, Long.SIZE - 1);
+        }
+
+        private boolean hasRemainingLength(int length) {
+            return (remainingLengths & 1L << Math.min(length, Long.SIZE - 1)) != 0;
+        }
+
+        private Node literalChild(DeepLinkMatch match, int index) {
+            int mask = literalKeys.length - 1;
+            int hash = match.segmentHash(index);
+
+            for (int slot = hash & mask; literalKeys[slot] != null; slot = (slot + 1) & mask) {
+                String key = literalKeys[slot];
+                if (key.hashCode() == hash && match.segmentEquals(index, key)) {
+                    return literalNodes[slot];
+                }
+            }
+
+            return null;
+        }
+
+        private Node literalChild(String segment) {
+            if (literalKeys == null) {
+                literalKeys = new String[INITIAL_LITERAL_CAPACITY];
+                literalNodes = new Node[INITIAL_LITERAL_CAPACITY];
+            }
+
+            int slot = findSlot(literalKeys, segment);
+            if (literalKeys[slot] != null) {
+                return literalNodes[slot];
+            }
+
+            // keep the table at most half full so that probe sequences stay short
+            if ((literalCount + 1) * 2 > literalKeys.length) {
+                String[] keys = literalKeys;
+                Node[] nodes = literalNodes;
+                literalKeys = new String[keys.length * 2];
+                literalNodes = new Node[keys.length * 2];
+
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null) {
+                        int newSlot = findSlot(literalKeys, keys[i]);
+                        literalKeys[newSlot] = keys[i];
+                        literalNodes[newSlot] = nodes[i];
+                    }
+                }
+
+                slot = findSlot(literalKeys, segment);
+            }
+
+            Node child = new Node();
+            literalKeys[slot] = segment;
+            literalNodes[slot] = child;
+            literalCount++;
+            return child;
+        }
+
+        private static int findSlot(String[] keys, String segment) {
+            int mask = keys.length - 1;
+            int slot = segment.hashCode() & mask;
+
+            while (keys[slot] != null && !keys[slot].equals(segment)) {
+                slot = (slot + 1) & mask;
+            }
+
+            return slot;
+        }
+
+        private Node wildcardChild() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+
+            return wildcard;
+        }
+
+        private Node paramChild(DeepLinkParamType type) {
+            if (params == null) {
+                params = new Node[PARAM_TYPES.length];
+            }
+
+            Node child = params[type.ordinal()];
+            if (child == null) {
+                child = new Node();
+                params[type.ordinal()] = child;
+            }
+
+            return child;
+        }
+    }
+}
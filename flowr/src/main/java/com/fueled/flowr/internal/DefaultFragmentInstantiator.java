@@ -0,0 +1,81 @@
+package com.fueled.flowr.internal;
+
+import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
+
+import com.fueled.flowr.FragmentInstantiator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Default {@link FragmentInstantiator} calling the public constructor without parameters of
+ * the fragment classes, the constructor of each class is only looked up once per process.
+ */
+public final class DefaultFragmentInstantiator implements FragmentInstantiator {
+
+    private static final DefaultFragmentInstantiator INSTANCE = new DefaultFragmentInstantiator();
+
+    private final ConcurrentMap<Class<?>, Constructor<?>> constructors =
+            new ConcurrentHashMap<>();
+
+    private DefaultFragmentInstantiator() {
+    }
+
+    /**
+     * Returns the instantiator shared by all the Flowr instances.
+     *
+     * @return the default instantiator.
+     */
+    @NonNull
+    public static DefaultFragmentInstantiator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @NonNull
+    @Override
+    public Fragment instantiate(@NonNull Class<? extends Fragment> fragmentClass) {
+        try {
+            return getConstructor(fragmentClass).newInstance();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to instantiate fragment "
+                    + fragmentClass.getName(), e.getCause());
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Unable to instantiate fragment "
+                    + fragmentClass.getName() + ": make sure the class is public, not abstract"
+                    + " and has a public constructor without parameters", e);
+        }
+    }
+
+    /**
+     * Look up the constructor of a fragment class ahead of time, which can be done from
+     * any thread. Nothing is done for the classes that cannot be instantiated.
+     *
+     * @param fragmentClass the class of a fragment likely to be displayed.
+     */
+    public void preload(@NonNull Class<? extends Fragment> fragmentClass) {
+        try {
+            getConstructor(fragmentClass);
+        } catch (NoSuchMethodException e) {
+            // Reported when the fragment is actually created.
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Fragment> Constructor<T> getConstructor(Class<T> fragmentClass)
+            throws NoSuchMethodException {
+        Constructor<?> constructor = constructors.get(fragmentClass);
+
+        if (constructor == null) {
+            constructor = fragmentClass.getConstructor();
+            constructors.putIfAbsent(fragmentClass, constructor);
+        }
+
+        return (Constructor<T>) constructor;
+    }
+}
@@ -0,0 +1,221 @@
+package com.fueled.flowr.internal;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the entries of a fragment manager back stack by position, transaction identifier and
+ * class of the fragment they display, updated each time the back stack changes.
+ * <p/>
+ * The fragment manager does not expose the fragments of the back stack entries, so the name of
+ * the class of each fragment is appended to the name of its entry, see
+ * {@link #getEntryName(String, int, Class)}. The fragment manager saves the names along with
+ * the back stack, so the index is rebuilt from the restored entries once the screen is recreated.
+ * The entries whose name does not end with a fragment class are only indexed by position and
+ * transaction identifier.
+ * <p/>
+ * The entries are only pushed and popped from the top of the back stack, so each update only
+ * indexes the entries above the topmost one that is still in place. The index is only updated
+ * once the transactions are executed, the entries of the transactions that are still pending are
+ * therefore not indexed yet.
+ */
+@MainThread
+public final class FlowrBackStackIndex {
+
+    private static final char CLASS_SEPARATOR = ':';
+
+    private final Map<String, Class<? extends Fragment>> classesByName = new HashMap<>();
+
+    private int size;
+    private FragmentManager.BackStackEntry[] entries = new FragmentManager.BackStackEntry[8];
+    private int[] ids = new int[8];
+    private int[] previousPositions = new int[8];
+    private final List<Class<? extends Fragment>> classes = new ArrayList<>();
+    private final Map<Integer, Integer> positionsById = new HashMap<>();
+    private final Map<Class<? extends Fragment>, Integer> lastPositions = new HashMap<>();
+
+    /**
+     * Returns the name of a back stack entry displaying a fragment of the specified class,
+     * made of the prefix and position of the entry followed by the name of the class.
+     *
+     * @param prefix        the prefix of the entry names.
+     * @param position      the position of the entry, from the bottom of the back stack.
+     * @param fragmentClass the class of the fragment displayed by the entry.
+     * @return the name to add the entry to the back stack with.
+     */
+    @NonNull
+    public String getEntryName(@NonNull String prefix, int position,
+                               @NonNull Class<? extends Fragment> fragmentClass) {
+        classesByName.put(fragmentClass.getName(), fragmentClass);
+        return prefix + position + CLASS_SEPARATOR + fragmentClass.getName();
+    }
+
+    /**
+     * Index the entries pushed on a back stack since the last update, after forgetting
+     * the ones that were popped.
+     *
+     * @param fragmentManager the fragment manager owning the back stack.
+     */
+    public void update(@NonNull FragmentManager fragmentManager) {
+        int count = fragmentManager.getBackStackEntryCount();
+
+        int kept = Math.min(size, count);
+        while (kept > 0 && entries[kept - 1] != fragmentManager.getBackStackEntryAt(kept - 1)) {
+            kept--;
+        }
+
+        while (size > kept) {
+            pop();
+        }
+
+        for (int position = kept; position < count; position++) {
+            push(fragmentManager.getBackStackEntryAt(position));
+        }
+    }
+
+    private void push(FragmentManager.BackStackEntry entry) {
+        if (entries.length == size) {
+            entries = Arrays.copyOf(entries, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+            previousPositions = Arrays.copyOf(previousPositions, size * 2);
+        }
+
+        Class<? extends Fragment> fragmentClass = getFragmentClass(entry.getName());
+        int position = size++;
+
+        entries[position] = entry;
+        ids[position] = entry.getId();
+        previousPositions[position] = -1;
+        classes.add(fragmentClass);
+        positionsById.put(entry.getId(), position);
+
+        if (fragmentClass != null) {
+            Integer previousPosition = lastPositions.put(fragmentClass, position);
+            if (previousPosition != null) {
+                previousPositions[position] = previousPosition;
+            }
+        }
+    }
+
+    private void pop() {
+        int position = --size;
+        Class<? extends Fragment> fragmentClass = classes.remove(position);
+
+        entries[position] = null;
+        positionsById.remove(ids[position]);
+
+        if (fragmentClass != null) {
+            if (previousPositions[position] >= 0) {
+                lastPositions.put(fragmentClass, previousPositions[position]);
+            } else {
+                lastPositions.remove(fragmentClass);
+            }
+        }
+    }
+
+    /**
+     * Returns the fragment class whose name ends the name of an entry, loading it when it was
+     * not named by this index, for instance when the back stack was restored.
+     *
+     * @param entryName the name of the back stack entry.
+     * @return the fragment class, or null if the name does not end with a fragment class.
+     */
+    @Nullable
+    private Class<? extends Fragment> getFragmentClass(@Nullable String entryName) {
+        int separator = entryName != null ? entryName.lastIndexOf(CLASS_SEPARATOR) : -1;
+        if (separator < 0) {
+            return null;
+        }
+
+        String className = entryName.substring(separator + 1);
+        Class<? extends Fragment> fragmentClass = classesByName.get(className);
+
+        if (fragmentClass == null && !classesByName.containsKey(className)) {
+            try {
+                Class<?> type = Class.forName(className, false, getClass().getClassLoader());
+
+                if (Fragment.class.isAssignableFrom(type)) {
+                    fragmentClass = type.asSubclass(Fragment.class);
+                }
+            } catch (ClassNotFoundException e) {
+                // Not named by this index, the entry is only indexed by position.
+            }
+
+            classesByName.put(className, fragmentClass);
+        }
+
+        return fragmentClass;
+    }
+
+    /**
+     * Forget all the entries.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0, size, null);
+        size = 0;
+        classes.clear();
+        positionsById.clear();
+        lastPositions.clear();
+    }
+
+    /**
+     * Returns the number of indexed entries.
+     *
+     * @return the size of the back stack when it was last updated.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the identifier of the transaction of an entry.
+     *
+     * @param position the position of the entry, from the bottom of the back stack.
+     * @return the transaction identifier, or -1 if there is no entry at this position.
+     */
+    public int getTransactionId(int position) {
+        return position >= 0 && position < size ? ids[position] : -1;
+    }
+
+    /**
+     * Returns the class of the fragment displayed by an entry.
+     *
+     * @param position the position of the entry, from the bottom of the back stack.
+     * @return the fragment class, or null if it is unknown or there is no entry at this position.
+     */
+    @Nullable
+    public Class<? extends Fragment> getFragmentClass(int position) {
+        return position >= 0 && position < classes.size() ? classes.get(position) : null;
+    }
+
+    /**
+     * Returns the position of the entry of a transaction.
+     *
+     * @param id the identifier of the transaction.
+     * @return the position of its entry, or -1 if it is not in the back stack.
+     */
+    public int indexOfTransaction(int id) {
+        Integer position = positionsById.get(id);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Returns the position of the topmost entry displaying a fragment of the specified class.
+     *
+     * @param fragmentClass the class of the fragment.
+     * @return the position of the entry, or -1 if there is none.
+     */
+    public int indexOf(@NonNull Class<? extends Fragment> fragmentClass) {
+        Integer position = lastPositions.get(fragmentClass);
+        return position != null ? position : -1;
+    }
+}
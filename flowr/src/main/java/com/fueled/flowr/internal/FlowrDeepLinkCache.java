@@ -0,0 +1,182 @@
+package com.fueled.flowr.internal;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.app.Fragment;
+
+import com.fueled.flowr.FlowrFragment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded LRU cache of resolved deep links keyed by the whole URI, wrapping the handler
+ * that actually resolves the links. Links that could not be resolved are cached as well.
+ * <p/>
+ * The arguments of a link are only built when it is resolved for the first time, the cached
+ * ones are then put into the arguments of the transactions displaying the link.
+ */
+public class FlowrDeepLinkCache implements FlowrDeepLinkHandler {
+
+    private final FlowrDeepLinkHandler resolver;
+    private final LinkedHashMap<String, FlowrDeepLinkInfo> entries;
+
+    private int maxSize;
+    private int hitCount;
+    private int missCount;
+
+    /**
+     * @param resolver the handler used to resolve the links that are not cached yet.
+     * @param maxSize  the maximum number of links to keep, 0 to disable the cache.
+     */
+    public FlowrDeepLinkCache(@NonNull FlowrDeepLinkHandler resolver, int maxSize) {
+        this.resolver = resolver;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, FlowrDeepLinkInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FlowrDeepLinkInfo> eldest) {
+                return size() > FlowrDeepLinkCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Nullable
+    @Override
+    public FlowrDeepLinkInfo getDeepLinkInfoForIntent(@NonNull Intent intent) {
+        return resolve(intent, true);
+    }
+
+    /**
+     * Resolve the deep link intent of a transaction and update the transaction directly, the
+     * cached arguments of the link being put into the arguments of the transaction.
+     *
+     * @param data the transaction to update.
+     * @param <T>  the generic type for a valid Fragment.
+     * @return true if the link was resolved, else the transaction is left untouched.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Fragment & FlowrFragment> boolean injectDeepLinkInfo(
+            @NonNull TransactionData<T> data) {
+        Intent intent = data.getDeepLinkIntent();
+        FlowrDeepLinkInfo info = intent != null ? resolve(intent, false) : null;
+
+        if (info == null) {
+            return false;
+        }
+
+        data.setFragmentClass(info.fragment);
+
+        Bundle args = data.getArgs();
+        if (args != null) {
+            args.putAll(info.data);
+        } else {
+            data.setArgs(copyBundle(info.data));
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the cached link of an intent, resolving it first if it is not cached yet.
+     *
+     * @param intent the deep link intent.
+     * @param copy   whether the arguments of a cached link should be copied, they must
+     *               otherwise not be modified.
+     * @return the resolved link, or null if it could not be resolved.
+     */
+    @Nullable
+    private FlowrDeepLinkInfo resolve(Intent intent, boolean copy) {
+        Uri uri = intent.getData();
+        String key = uri != null ? uri.toString() : null;
+
+        if (key == null) {
+            return resolver.getDeepLinkInfoForIntent(intent);
+        }
+
+        FlowrDeepLinkInfo cached;
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                hitCount++;
+                cached = entries.get(key);
+                return cached != null && copy ? copy(cached) : cached;
+            }
+
+            missCount++;
+        }
+
+        FlowrDeepLinkInfo info = resolver.getDeepLinkInfoForIntent(intent);
+        cached = info != null ? copy(info) : null;
+
+        synchronized (this) {
+            if (maxSize > 0) {
+                entries.put(key, cached);
+            }
+        }
+
+        return info;
+    }
+
+    @SuppressWarnings("unchecked")
+    private FlowrDeepLinkInfo copy(FlowrDeepLinkInfo info) {
+        return new FlowrDeepLinkInfo<>(copyBundle(info.data), info.fragment);
+    }
+
+    @VisibleForTesting
+    Bundle copyBundle(Bundle data) {
+        return new Bundle(data);
+    }
+
+    /**
+     * Change the maximum number of links to keep, evicting the least recently used ones if needed.
+     *
+     * @param maxSize the maximum number of links to keep, 0 to disable the cache.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+
+        while (entries.size() > maxSize) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Returns the maximum number of links to keep.
+     *
+     * @return the maximum number of links to keep, 0 if the cache is disabled.
+     */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Remove all the cached links.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of links that were found in the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of links that had to be resolved.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+}
@@ -0,0 +1,397 @@
+package com.fueled.flowr.internal;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+import com.fueled.flowr.Flowr;
+import com.fueled.flowr.FlowrFragment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Immutable index resolving links against the routes of several
+ * {@link AbstractFlowrDeepLinkHandler}s, so that a link is resolved with a single lookup
+ * whatever the number of handlers.
+ * <p/>
+ * The routes of consecutive handlers relying on the default matcher are merged into a single
+ * route trie, where the most specific route wins and the handler that comes first wins between
+ * equally specific routes with the same shape. The handlers overriding
+ * {@link AbstractFlowrDeepLinkHandler#findRoute(DeepLinkMatch)}, such as the ones generated with
+ * a dedicated matcher, are queried through their own matcher instead. The handlers are tried in
+ * order, so a link is resolved by the first matcher or merged trie that matches it.
+ * <p/>
+ * The index of a list of handlers whose routes only depend on their class, such as the generated
+ * handlers, is built once per process for these handler classes and shared by every
+ * {@link Flowr} instance. The index of any other list of handlers only references the handler
+ * instances it was built for, and is built each time the handlers are set on a router.
+ * <p/>
+ * Links can also be resolved in batches with {@link #resolve(List)}, for instance to check
+ * ahead of time which links of a list can be opened.
+ */
+public final class FlowrDeepLinkIndex implements FlowrDeepLinkHandler {
+
+    /**
+     * The number of links resolved by each task when a batch is split across an executor.
+     */
+    private static final int BATCH_CHUNK_SIZE = 256;
+
+    private static final ConcurrentMap<List<Class<?>>, FlowrDeepLinkIndex> SHARED_INDEXES =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, Boolean> OWN_MATCHERS =
+            new ConcurrentHashMap<>();
+
+    private final List<DeepLinkRoute<?>> routes;
+    private final RouteMatcher[] matchers;
+    private final int maxParamCount;
+
+    @SuppressWarnings("unchecked")
+    private FlowrDeepLinkIndex(List<AbstractFlowrDeepLinkHandler> handlers) {
+        List<DeepLinkRoute<?>> allRoutes = new ArrayList<>();
+        List<RouteMatcher> allMatchers = new ArrayList<>();
+        DeepLinkRouteTrie trie = null;
+        int max = 0;
+
+        for (AbstractFlowrDeepLinkHandler<?> handler : handlers) {
+            List<? extends DeepLinkRoute<?>> handlerRoutes = handler.getRoutes();
+
+            if (hasOwnMatcher(handler)) {
+                allMatchers.add(new RouteMatcher(allRoutes.size(), null, handler));
+                trie = null;
+            } else {
+                if (trie == null) {
+                    trie = new DeepLinkRouteTrie();
+                    allMatchers.add(new RouteMatcher(allRoutes.size(), trie, null));
+                }
+
+                for (DeepLinkRoute route : handlerRoutes) {
+                    trie.add(route);
+                }
+            }
+
+            for (DeepLinkRoute<?> route : handlerRoutes) {
+                max = Math.max(max, route.paramNames.length);
+            }
+
+            allRoutes.addAll(handlerRoutes);
+        }
+
+        this.routes = allRoutes;
+        this.matchers = allMatchers.toArray(new RouteMatcher[allMatchers.size()]);
+        this.maxParamCount = max;
+    }
+
+    /**
+     * Returns the index for the specified handlers, shared with the other routers when all
+     * the handlers have static routes, else built for these handler instances.
+     *
+     * @param handlers the handlers to resolve links against, in order.
+     * @return the index for the handlers.
+     */
+    @NonNull
+    public static FlowrDeepLinkIndex forHandlers(@NonNull List<AbstractFlowrDeepLinkHandler> handlers) {
+        List<Class<?>> key = new ArrayList<>(handlers.size());
+        for (AbstractFlowrDeepLinkHandler handler : handlers) {
+            if (!handler.hasStaticRoutes()) {
+                return new FlowrDeepLinkIndex(handlers);
+            }
+
+            key.add(handler.getClass());
+        }
+
+        FlowrDeepLinkIndex index = SHARED_INDEXES.get(key);
+        if (index == null) {
+            index = new FlowrDeepLinkIndex(handlers);
+            FlowrDeepLinkIndex previous = SHARED_INDEXES.putIfAbsent(key, index);
+
+            if (previous != null) {
+                index = previous;
+            }
+        }
+
+        return index;
+    }
+
+    private static boolean hasOwnMatcher(AbstractFlowrDeepLinkHandler<?> handler) {
+        Boolean ownMatcher = OWN_MATCHERS.get(handler.getClass());
+        if (ownMatcher != null) {
+            return ownMatcher;
+        }
+
+        ownMatcher = false;
+        for (Class<?> type = handler.getClass(); type != AbstractFlowrDeepLinkHandler.class;
+             type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("findRoute", DeepLinkMatch.class);
+                ownMatcher = true;
+                break;
+            } catch (NoSuchMethodException e) {
+                // Keep looking in the parent class.
+            }
+        }
+
+        OWN_MATCHERS.put(handler.getClass(), ownMatcher);
+        return ownMatcher;
+    }
+
+    /**
+     * Find the route matching the specified link.
+     *
+     * @param match the link to match.
+     * @return the identifier of the route in this index, or {@link DeepLinkRouteTrie#NO_ROUTE}.
+     */
+    private int find(DeepLinkMatch match) {
+        for (RouteMatcher matcher : matchers) {
+            int id = matcher.find(match);
+
+            if (id != DeepLinkRouteTrie.NO_ROUTE) {
+                return id;
+            }
+        }
+
+        return DeepLinkRouteTrie.NO_ROUTE;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Nullable
+    @Override
+    public FlowrDeepLinkInfo getDeepLinkInfoForIntent(@NonNull Intent intent) {
+        Uri uri = intent.getData();
+
+        if (uri != null && uri.getPath() != null) {
+            DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+
+            try {
+                int id = find(match);
+
+                if (id != DeepLinkRouteTrie.NO_ROUTE) {
+                    return toDeepLinkInfo(match, routes.get(id));
+                }
+            } finally {
+                match.recycle();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Resolve the deep link intent of a transaction and update the transaction directly,
+     * the path variables and query parameters of the link being put into the arguments of
+     * the transaction without building an intermediate bundle.
+     *
+     * @param data the transaction to update.
+     * @param <T>  the generic type for a valid Fragment.
+     * @return true if the link was resolved, else the transaction is left untouched.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Fragment & FlowrFragment> boolean injectDeepLinkInfo(
+            @NonNull TransactionData<T> data) {
+        Intent intent = data.getDeepLinkIntent();
+        Uri uri = intent != null ? intent.getData() : null;
+
+        if (uri == null || uri.getPath() == null) {
+            return false;
+        }
+
+        DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+
+        try {
+            int id = find(match);
+            if (id == DeepLinkRouteTrie.NO_ROUTE) {
+                return false;
+            }
+
+            DeepLinkRoute<T> route = (DeepLinkRoute<T>) routes.get(id);
+            data.setFragmentClass(route.getFragment());
+
+            Bundle args = data.getArgs();
+            if (args == null) {
+                args = new Bundle();
+                data.setArgs(args);
+            }
+
+            args.putString(Flowr.DEEP_LINK_URL, uri.toString());
+            route.putParams(args, match);
+            return true;
+        } finally {
+            match.recycle();
+        }
+    }
+
+    /**
+     * Resolve a batch of links on the calling thread.
+     *
+     * @param uris the links to resolve, null entries are never resolved.
+     * @return the compact result of the batch.
+     */
+    @NonNull
+    public DeepLinkBatchResult resolve(@NonNull List<Uri> uris) {
+        return resolve(uris, null);
+    }
+
+    /**
+     * Resolve a batch of links, splitting large batches in chunks that are resolved on the
+     * specified executor while the calling thread resolves the first one. This method blocks
+     * until the whole batch is resolved, so the executor must not run on the calling thread.
+     *
+     * @param uris     the links to resolve, null entries are never resolved.
+     * @param executor the executor used to resolve large batches, null to only use
+     *                 the calling thread.
+     * @return the compact result of the batch.
+     */
+    @NonNull
+    public DeepLinkBatchResult resolve(@NonNull final List<Uri> uris, @Nullable Executor executor) {
+        final DeepLinkBatchResult result = new DeepLinkBatchResult(this, uris, maxParamCount);
+        int size = uris.size();
+        int chunks = executor != null ? (size + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE : 1;
+
+        if (chunks <= 1) {
+            resolve(uris, result, 0, size);
+            return result;
+        }
+
+        final CountDownLatch latch = new CountDownLatch(chunks - 1);
+        for (int start = BATCH_CHUNK_SIZE; start < size; start += BATCH_CHUNK_SIZE) {
+            final int chunkStart = start;
+            final int chunkEnd = Math.min(start + BATCH_CHUNK_SIZE, size);
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        resolve(uris, result, chunkStart, chunkEnd);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        resolve(uris, result, 0, BATCH_CHUNK_SIZE);
+
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        return result;
+    }
+
+    private void resolve(List<Uri> uris, DeepLinkBatchResult result, int start, int end) {
+        for (int i = start; i < end; i++) {
+            Uri uri = uris.get(i);
+
+            if (uri != null && uri.getPath() != null) {
+                DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+                int id = find(match);
+
+                if (id != DeepLinkRouteTrie.NO_ROUTE) {
+                    result.set(i, id, routes.get(id), match);
+                }
+
+                match.recycle();
+            }
+        }
+    }
+
+    /**
+     * Load the fragment classes of the routes matching the specified links on an executor,
+     * so that the routes registered without their fragment class do not load it when one of
+     * these links is later opened.
+     *
+     * @param uris     the links likely to be opened, null entries are ignored.
+     * @param executor the executor used to load the classes.
+     */
+    public void preloadFragments(@NonNull List<Uri> uris, @NonNull Executor executor) {
+        final List<Uri> links = new ArrayList<>(uris);
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Uri uri : links) {
+                    if (uri != null && uri.getPath() != null) {
+                        DeepLinkMatch match = DeepLinkMatch.obtain(uri, uri.getPath());
+
+                        try {
+                            int id = find(match);
+                            if (id != DeepLinkRouteTrie.NO_ROUTE) {
+                                routes.get(id).getFragment();
+                            }
+                        } finally {
+                            match.recycle();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    DeepLinkRoute<?> getRoute(int id) {
+        return routes.get(id);
+    }
+
+    /**
+     * Build the deep link info of a link already known to match a route.
+     *
+     * @param match the link matched by the route.
+     * @param id    the identifier of the route.
+     * @return the deep link info.
+     */
+    FlowrDeepLinkInfo toDeepLinkInfo(DeepLinkMatch match, int id) {
+        DeepLinkRoute<?> route = routes.get(id);
+
+        // look up the query values again, they are only kept for the last checked route
+        route.matches(match);
+        return toDeepLinkInfo(match, route);
+    }
+
+    private static <T extends Fragment & FlowrFragment> FlowrDeepLinkInfo<T> toDeepLinkInfo(
+            DeepLinkMatch match, DeepLinkRoute<T> route) {
+        Bundle data = new Bundle();
+        data.putString(Flowr.DEEP_LINK_URL, match.uri.toString());
+        route.putParams(data, match);
+        return new FlowrDeepLinkInfo<>(data, route.getFragment());
+    }
+
+    /**
+     * Matches links against either a trie merging the routes of several handlers or a handler
+     * providing its own matcher, and offsets the identifiers of its routes within the index.
+     */
+    private static final class RouteMatcher {
+
+        private final int offset;
+        @Nullable private final DeepLinkRouteTrie<?> trie;
+        @Nullable private final AbstractFlowrDeepLinkHandler<?> handler;
+
+        RouteMatcher(int offset, @Nullable DeepLinkRouteTrie<?> trie,
+                     @Nullable AbstractFlowrDeepLinkHandler<?> handler) {
+            this.offset = offset;
+            this.trie = trie;
+            this.handler = handler;
+        }
+
+        int find(DeepLinkMatch match) {
+            int id = trie != null ? trie.find(match) : handler.findRoute(match);
+            return id != DeepLinkRouteTrie.NO_ROUTE ? offset + id : DeepLinkRouteTrie.NO_ROUTE;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fueled.flowr.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+/**
+ * Creates fragments by calling their constructor directly rather than through reflection.
+ */
+public interface FlowrFragmentFactory {
+
+    /**
+     * Create a new instance of a fragment class.
+     *
+     * @param fragment the class of the fragment to create.
+     * @return the new fragment, or null if this factory does not know the class.
+     */
+    @Nullable
+    Fragment newFragment(@NonNull Class<?> fragment);
+}
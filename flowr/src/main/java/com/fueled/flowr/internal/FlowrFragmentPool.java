@@ -0,0 +1,120 @@
+package com.fueled.flowr.internal;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded pools of fragments created ahead of time, for the fragment classes displayed often
+ * enough to be worth creating before they are needed. A pooled fragment is only handed out once,
+ * fragments are never returned to their pool after being displayed.
+ */
+@MainThread
+public final class FlowrFragmentPool {
+
+    private final Map<Class<? extends Fragment>, Pool> pools = new LinkedHashMap<>();
+
+    /**
+     * Start pooling the fragments of a class, or update the size of its pool.
+     *
+     * @param fragmentClass the class of the fragments to pool.
+     * @param maxSize       the maximum number of fragments to keep.
+     */
+    public void register(@NonNull Class<? extends Fragment> fragmentClass, int maxSize) {
+        Pool pool = pools.get(fragmentClass);
+
+        if (pool == null) {
+            pools.put(fragmentClass, new Pool(maxSize));
+        } else {
+            pool.maxSize = maxSize;
+            while (pool.fragments.size() > maxSize) {
+                pool.fragments.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Stop pooling the fragments of a class, dropping the ones already created.
+     *
+     * @param fragmentClass the class of the pooled fragments.
+     */
+    public void unregister(@NonNull Class<? extends Fragment> fragmentClass) {
+        pools.remove(fragmentClass);
+    }
+
+    /**
+     * Take a fragment out of the pool of its class.
+     *
+     * @param fragmentClass the class of the fragment to display.
+     * @return a pooled fragment, or null if there is none.
+     */
+    @Nullable
+    public Fragment acquire(@NonNull Class<? extends Fragment> fragmentClass) {
+        Pool pool = pools.get(fragmentClass);
+        return pool != null ? pool.fragments.pollFirst() : null;
+    }
+
+    /**
+     * Returns a pooled class that has fewer fragments than the size of its pool.
+     *
+     * @return the class of the fragment to create next, or null if all the pools are full.
+     */
+    @Nullable
+    public Class<? extends Fragment> nextMissing() {
+        for (Map.Entry<Class<? extends Fragment>, Pool> entry : pools.entrySet()) {
+            if (entry.getValue().fragments.size() < entry.getValue().maxSize) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add a newly created fragment to the pool of its class, unless the pool is already full.
+     *
+     * @param fragment the fragment to pool.
+     */
+    public void put(@NonNull Fragment fragment) {
+        Pool pool = pools.get(fragment.getClass());
+
+        if (pool != null && pool.fragments.size() < pool.maxSize) {
+            pool.fragments.addLast(fragment);
+        }
+    }
+
+    /**
+     * Returns the number of fragments currently pooled for a class.
+     *
+     * @param fragmentClass the class of the pooled fragments.
+     * @return the number of pooled fragments.
+     */
+    public int size(@NonNull Class<? extends Fragment> fragmentClass) {
+        Pool pool = pools.get(fragmentClass);
+        return pool != null ? pool.fragments.size() : 0;
+    }
+
+    /**
+     * Drop all the pooled fragments, the classes remain registered.
+     */
+    public void clear() {
+        for (Pool pool : pools.values()) {
+            pool.fragments.clear();
+        }
+    }
+
+    private static final class Pool {
+
+        private final ArrayDeque<Fragment> fragments = new ArrayDeque<>();
+        private int maxSize;
+
+        private Pool(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+}
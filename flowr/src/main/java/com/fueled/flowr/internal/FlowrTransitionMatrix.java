@@ -0,0 +1,276 @@
+package com.fueled.flowr.internal;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts of the transitions between fragment classes, keyed by class name so that they can be
+ * kept across processes, used to predict the next fragments displayed after a given one.
+ * The counts are kept in a square matrix indexed by the order in which the classes were first
+ * seen, up to {@link #MAX_CLASSES} classes. Once a count reaches {@link #MAX_COUNT} all the counts
+ * from the same class are halved, so that recent habits weigh more than old ones.
+ * <p/>
+ * A saved matrix starts with the {@link #MAGIC} number as an int and the {@link #VERSION} of
+ * the format as an unsigned short. Then come the number of classes as an unsigned short and
+ * their names in modified UTF-8, then the number of non zero counts as an int, and for each of
+ * them the positions of its origin and destination classes as unsigned shorts followed by
+ * the count as an unsigned short.
+ */
+public final class FlowrTransitionMatrix {
+
+    /**
+     * The first bytes of a saved matrix, "FLWT" in ASCII.
+     */
+    static final int MAGIC = 0x464c5754;
+    static final int VERSION = 1;
+
+    static final int MAX_CLASSES = 128;
+    static final int MAX_COUNT = 0xffff;
+
+    private final List<String> classNames = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    /**
+     * The transition counts in row major order, a row for each origin class.
+     */
+    private int[] counts = new int[0];
+    private int capacity;
+
+    /**
+     * Count a transition between two fragment classes.
+     *
+     * @param from the name of the class of the fragment previously displayed.
+     * @param to   the name of the class of the fragment now displayed.
+     */
+    public synchronized void record(@NonNull String from, @NonNull String to) {
+        int fromIndex = indexOf(from);
+        int toIndex = indexOf(to);
+
+        if (fromIndex >= 0 && toIndex >= 0) {
+            add(fromIndex, toIndex, 1);
+        }
+    }
+
+    /**
+     * Returns the classes most often displayed after the specified one, from the most likely.
+     *
+     * @param from     the name of the class of the fragment currently displayed.
+     * @param maxCount the maximum number of classes to return.
+     * @return the names of the predicted classes, possibly empty.
+     */
+    @NonNull
+    public synchronized List<String> predict(@NonNull String from, int maxCount) {
+        List<String> predictions = new ArrayList<>(maxCount);
+        Integer fromIndex = indices.get(from);
+
+        if (fromIndex == null) {
+            return predictions;
+        }
+
+        List<Integer> destinations = new ArrayList<>();
+        final int row = fromIndex * capacity;
+        for (int i = 0; i < classNames.size(); i++) {
+            if (counts[row + i] > 0) {
+                destinations.add(i);
+            }
+        }
+
+        Collections.sort(destinations, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer index1, Integer index2) {
+                return counts[row + index2] - counts[row + index1];
+            }
+        });
+
+        for (int i = 0; i < destinations.size() && i < maxCount; i++) {
+            predictions.add(classNames.get(destinations.get(i)));
+        }
+
+        return predictions;
+    }
+
+    /**
+     * Read the matrix saved in a file, if any, and add its counts to the ones of this matrix.
+     *
+     * @param file the file the matrix was saved to.
+     * @throws IOException if the file could not be read or is not a supported matrix.
+     */
+    public void load(@NonNull File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        InputStream input = new FileInputStream(file);
+        try {
+            read(input);
+        } finally {
+            close(input);
+        }
+    }
+
+    /**
+     * Save this matrix to a file, through a temporary file so that a saved matrix is never
+     * left incomplete.
+     *
+     * @param file the file to save the matrix to.
+     * @throws IOException if the file could not be written.
+     */
+    public void save(@NonNull File file) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        OutputStream output = new FileOutputStream(temporaryFile);
+        try {
+            write(output);
+        } finally {
+            close(output);
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do with the file.
+        }
+    }
+
+    /**
+     * Read a saved matrix and add its counts to the ones of this matrix, the stream is not closed.
+     *
+     * @param input the stream to read the matrix from.
+     * @throws IOException if the stream could not be read or is not a supported matrix.
+     */
+    public synchronized void read(@NonNull InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION) {
+            throw new IOException("Unsupported transition matrix format");
+        }
+
+        int[] savedIndices = new int[data.readUnsignedShort()];
+        for (int i = 0; i < savedIndices.length; i++) {
+            savedIndices[i] = indexOf(data.readUTF());
+        }
+
+        for (int i = data.readInt(); i > 0; i--) {
+            int fromIndex = savedIndices[data.readUnsignedShort()];
+            int toIndex = savedIndices[data.readUnsignedShort()];
+            int count = data.readUnsignedShort();
+
+            if (fromIndex >= 0 && toIndex >= 0) {
+                add(fromIndex, toIndex, count);
+            }
+        }
+    }
+
+    /**
+     * Write this matrix, the stream is flushed but not closed.
+     *
+     * @param output the stream to write the matrix to.
+     * @throws IOException if the stream could not be written.
+     */
+    public synchronized void write(@NonNull OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+
+        int size = classNames.size();
+        data.writeShort(size);
+        for (String className : classNames) {
+            data.writeUTF(className);
+        }
+
+        int nonZeroCount = 0;
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                if (counts[from * capacity + to] > 0) {
+                    nonZeroCount++;
+                }
+            }
+        }
+
+        data.writeInt(nonZeroCount);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                int count = counts[from * capacity + to];
+                if (count > 0) {
+                    data.writeShort(from);
+                    data.writeShort(to);
+                    data.writeShort(count);
+                }
+            }
+        }
+
+        data.flush();
+    }
+
+    /**
+     * Returns the position of a class in the matrix, adding it if needed.
+     *
+     * @return the position of the class, or -1 if the matrix is full.
+     */
+    private int indexOf(String className) {
+        Integer index = indices.get(className);
+        if (index != null) {
+            return index;
+        }
+
+        if (classNames.size() == MAX_CLASSES) {
+            return -1;
+        }
+
+        if (classNames.size() == capacity) {
+            grow(Math.max(8, capacity * 2));
+        }
+
+        indices.put(className, classNames.size());
+        classNames.add(className);
+        return classNames.size() - 1;
+    }
+
+    private void grow(int newCapacity) {
+        int[] newCounts = new int[newCapacity * newCapacity];
+        for (int row = 0; row < capacity; row++) {
+            System.arraycopy(counts, row * capacity, newCounts, row * newCapacity, capacity);
+        }
+
+        counts = newCounts;
+        capacity = newCapacity;
+    }
+
+    private void add(int fromIndex, int toIndex, int count) {
+        int row = fromIndex * capacity;
+        int total = counts[row + toIndex] + count;
+
+        if (total > MAX_COUNT) {
+            for (int i = 0; i < capacity; i++) {
+                counts[row + i] /= 2;
+            }
+
+            total /= 2;
+        }
+
+        counts[row + toIndex] = total;
+    }
+}
@@ -5,6 +5,7 @@ import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentTransaction;
 
+import com.fueled.flowr.CommitStrategy;
 import com.fueled.flowr.FlowrFragment;
 
 /**
@@ -23,6 +24,7 @@ public final class TransactionData<T extends Fragment & FlowrFragment> {
     private int popEnterAnim;
     private int popExitAnim;
     private Intent deepLinkIntent;
+    private CommitStrategy commitStrategy;
 
     public TransactionData(Class<? extends T> fragmentClass) {
         this(fragmentClass, FragmentTransaction.TRANSIT_NONE, FragmentTransaction.TRANSIT_NONE);
@@ -121,4 +123,12 @@ public final class TransactionData<T extends Fragment & FlowrFragment> {
     public void setExitAnim(int exitAnim) {
         this.exitAnim = exitAnim;
     }
+
+    public CommitStrategy getCommitStrategy() {
+        return commitStrategy;
+    }
+
+    public void setCommitStrategy(CommitStrategy commitStrategy) {
+        this.commitStrategy = commitStrategy;
+    }
 }
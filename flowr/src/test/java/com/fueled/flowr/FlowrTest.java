@@ -0,0 +1,552 @@
+package com.fueled.flowr;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentTransaction;
+
+import com.fueled.flowr.internal.AbstractFlowrDeepLinkHandler;
+import com.fueled.flowr.internal.DeepLinkMatch;
+import com.fueled.flowr.internal.FlowrTransitionMatrix;
+import com.fueled.flowr.internal.TransactionData;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlowrTest {
+
+    private static final int CONTAINER_ID = 1;
+    private static final List<String> INITIALIZED_FRAGMENTS = new ArrayList<>();
+
+    @Mock FlowrScreen screen;
+    @Mock FragmentManager fragmentManager;
+    @Mock FragmentTransaction transaction;
+    @Mock FragmentsResultPublisher resultPublisher;
+    @Mock TransactionCallback callback;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private final List<Runnable> mainThreadTasks = new ArrayList<>();
+    private final List<MessageQueue.IdleHandler> idleHandlers = new ArrayList<>();
+    private final List<String> backStackNames = new ArrayList<>();
+
+    private Flowr flowr;
+
+    @Before
+    public void setup() {
+        when(screen.getScreenFragmentManager()).thenReturn(fragmentManager);
+        when(fragmentManager.beginTransaction()).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(7);
+        when(transaction.addToBackStack(anyString())).thenAnswer(
+                new Answer<FragmentTransaction>() {
+                    @Override
+                    public FragmentTransaction answer(InvocationOnMock invocation) {
+                        backStackNames.add((String) invocation.getArguments()[0]);
+                        return transaction;
+                    }
+                });
+        when(fragmentManager.getBackStackEntryAt(anyInt())).thenAnswer(
+                new Answer<FragmentManager.BackStackEntry>() {
+                    @Override
+                    public FragmentManager.BackStackEntry answer(InvocationOnMock invocation) {
+                        int position = (Integer) invocation.getArguments()[0];
+                        FragmentManager.BackStackEntry entry =
+                                mock(FragmentManager.BackStackEntry.class);
+                        when(entry.getId()).thenReturn(position + 10);
+                        when(entry.getName()).thenReturn(position < backStackNames.size()
+                                ? backStackNames.get(position) : null);
+                        return entry;
+                    }
+                });
+
+        flowr = spy(new Flowr(CONTAINER_ID, screen, resultPublisher));
+        flowr.setBackgroundExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                backgroundTasks.add(command);
+            }
+        });
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                mainThreadTasks.add((Runnable) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(flowr).postOnMainThread(any(Runnable.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                idleHandlers.add((MessageQueue.IdleHandler) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(flowr).addIdleHandler(any(MessageQueue.IdleHandler.class));
+    }
+
+    @Test
+    public void testDisplayFragmentAsync() {
+        PendingTransaction pending = flowr.open(TestFragment.class).displayFragmentAsync(callback);
+
+        assertEquals(1, backgroundTasks.size());
+        verify(fragmentManager, never()).beginTransaction();
+
+        backgroundTasks.remove(0).run();
+        verify(fragmentManager, never()).beginTransaction();
+
+        mainThreadTasks.remove(0).run();
+        verify(transaction).add(eq(CONTAINER_ID), any(TestFragment.class));
+        verify(callback).onTransactionCommitted(7);
+
+        assertTrue(pending.isDone());
+        assertEquals(7, pending.getTransactionId());
+    }
+
+    @Test
+    public void testPendingTransactionCancelledWhenScreenRemoved() {
+        PendingTransaction pending = flowr.open(TestFragment.class).displayFragmentAsync(callback);
+
+        backgroundTasks.remove(0).run();
+        flowr.setRouterScreen(null);
+        mainThreadTasks.remove(0).run();
+
+        verify(fragmentManager, never()).beginTransaction();
+        verify(callback, never()).onTransactionCommitted(anyInt());
+
+        assertTrue(pending.isCancelled());
+        assertFalse(pending.isDone());
+    }
+
+    @Test
+    public void testCancelledTransactionIsNotResolved() {
+        PendingTransaction pending = flowr.open(TestFragment.class).displayFragmentAsync(callback);
+        pending.cancel();
+
+        backgroundTasks.remove(0).run();
+
+        assertTrue(mainThreadTasks.isEmpty());
+        verify(fragmentManager, never()).beginTransaction();
+    }
+
+    @Test
+    public void testCancelledTransactionIsRemoved() {
+        PendingTransaction pending = flowr.open(TestFragment.class).displayFragmentAsync(callback);
+        flowr.open(OtherFragment.class).displayFragmentAsync(callback);
+        pending.cancel();
+
+        assertEquals(1, flowr.pendingTransactions.size());
+
+        backgroundTasks.remove(0).run();
+        backgroundTasks.remove(0).run();
+        mainThreadTasks.remove(0).run();
+
+        assertTrue(flowr.pendingTransactions.isEmpty());
+    }
+
+    @Test
+    public void testDisplayFragmentFromFactory() {
+        final TestFragment fragment = new TestFragment();
+        flowr.setDeepLinkHandlers(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+            @Override
+            public Fragment newFragment(@NonNull Class<?> fragmentClass) {
+                return fragmentClass == TestFragment.class ? fragment : null;
+            }
+        });
+
+        flowr.open(TestFragment.class).displayFragment();
+
+        verify(transaction).add(CONTAINER_ID, fragment);
+    }
+
+    @Test
+    public void testDeepLinkResolvedThroughHandlerMatcher() {
+        Intent intent = mock(Intent.class);
+        Uri uri = mock(Uri.class);
+        when(intent.getData()).thenReturn(uri);
+        when(uri.getPath()).thenReturn("/other");
+
+        final int[] matcherCalls = new int[1];
+        flowr.setDeepLinkHandlers(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+            @Override
+            protected void registerRoutes() {
+                addFragment("/test", TestFragment.class);
+                addFragment("/other", OtherFragment.class);
+            }
+
+            @Override
+            protected int findRoute(@NonNull DeepLinkMatch match) {
+                matcherCalls[0]++;
+                return match.segmentEquals(0, "other") && matchesRoute(match, 1) ? 1 : NO_ROUTE;
+            }
+        });
+
+        // resolved straight into the arguments instead of building a bundle to be cached
+        flowr.setDeepLinkCacheSize(0);
+
+        TransactionData<AbstractFlowrFragment> data = new TransactionData<>(TestFragment.class);
+        data.setDeepLinkIntent(intent);
+        data.setArgs(mock(Bundle.class));
+        flowr.injectDeepLinkInfo(data);
+
+        assertEquals(1, matcherCalls[0]);
+        assertEquals(OtherFragment.class, data.getFragmentClass());
+    }
+
+    @Test
+    public void testDisplayFragmentFromInstantiator() {
+        final TestFragment fragment = new TestFragment();
+        flowr.setFragmentInstantiator(new FragmentInstantiator() {
+            @NonNull
+            @Override
+            public Fragment instantiate(@NonNull Class<? extends Fragment> fragmentClass) {
+                return fragment;
+            }
+        });
+
+        flowr.open(TestFragment.class).displayFragment();
+
+        verify(transaction).add(CONTAINER_ID, fragment);
+    }
+
+    @Test
+    public void testDisplayFragmentsInBatch() {
+        final TestFragment fragment = new TestFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(3);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                when(fragmentManager.findFragmentById(CONTAINER_ID)).thenReturn(fragment);
+                flowr.onBackStackChanged();
+                flowr.onBackStackChanged();
+                flowr.onBackStackChanged();
+                return true;
+            }
+        }).when(fragmentManager).executePendingTransactions();
+
+        int id = flowr.batch()
+                .add(flowr.open(TestFragment.class).clearBackStack(true))
+                .add(flowr.open(TestFragment.class))
+                .add(flowr.open(TestFragment.class).skipBackStack(true))
+                .add(flowr.open(TestFragment.class).skipBackStack(true))
+                .displayFragments();
+
+        InOrder inOrder = inOrder(fragmentManager, transaction);
+        inOrder.verify(fragmentManager).popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+        inOrder.verify(transaction).addToBackStack("#id-0:" + TestFragment.class.getName());
+        inOrder.verify(transaction).commit();
+        inOrder.verify(transaction).addToBackStack("#id-1:" + TestFragment.class.getName());
+        inOrder.verify(transaction).commit();
+        inOrder.verify(transaction).commit();
+        inOrder.verify(fragmentManager).executePendingTransactions();
+
+        verify(fragmentManager, times(3)).beginTransaction();
+        verify(transaction, times(3)).setReorderingAllowed(true);
+        verify(transaction, times(4)).add(eq(CONTAINER_ID), any(TestFragment.class));
+        verify(screen).onCurrentFragmentChanged(fragment);
+
+        assertEquals(7, id);
+        assertEquals(fragment, flowr.getCurrentFragment());
+    }
+
+    @Test
+    public void testDisplayFragmentWithDefaultCommitStrategy() {
+        flowr.setDefaultCommitStrategy(CommitStrategy.REORDERED);
+
+        int id = flowr.open(TestFragment.class).displayFragment();
+
+        InOrder inOrder = inOrder(transaction);
+        inOrder.verify(transaction).setReorderingAllowed(true);
+        inOrder.verify(transaction).commit();
+
+        assertEquals(7, id);
+    }
+
+    @Test
+    public void testDisplayFragmentCommittedNow() {
+        int id = flowr.open(TestFragment.class)
+                .skipBackStack(true)
+                .setCommitStrategy(CommitStrategy.NOW)
+                .displayFragment();
+
+        verify(transaction).commitNow();
+        verify(transaction, never()).commit();
+        verify(transaction, never()).setReorderingAllowed(true);
+
+        assertEquals(-1, id);
+    }
+
+    @Test
+    public void testBackStackFragmentCommittedNow() {
+        int id = flowr.open(TestFragment.class)
+                .setCommitStrategy(CommitStrategy.NOW)
+                .displayFragment();
+
+        InOrder inOrder = inOrder(fragmentManager, transaction);
+        inOrder.verify(transaction).addToBackStack("#id-0:" + TestFragment.class.getName());
+        inOrder.verify(transaction).commit();
+        inOrder.verify(fragmentManager).executePendingTransactions();
+        verify(transaction, never()).commitNow();
+
+        assertEquals(7, id);
+    }
+
+    @Test
+    public void testDisplayFragmentClearingBackStack() {
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(3);
+
+        int id = flowr.open(TestFragment.class)
+                .clearBackStack(true)
+                .setCommitStrategy(CommitStrategy.NOW)
+                .displayFragment();
+
+        InOrder inOrder = inOrder(fragmentManager, transaction);
+        inOrder.verify(fragmentManager).popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+        inOrder.verify(transaction).addToBackStack("#id-0:" + TestFragment.class.getName());
+        inOrder.verify(transaction).setReorderingAllowed(true);
+        inOrder.verify(transaction).commit();
+        inOrder.verify(fragmentManager).executePendingTransactions();
+        verify(transaction, never()).commitNow();
+
+        assertEquals(7, id);
+    }
+
+    @Test
+    public void testDisplayFragmentClearingBackStackAsync() {
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(3);
+
+        int id = flowr.open(TestFragment.class)
+                .clearBackStack(true)
+                .setCommitStrategy(CommitStrategy.ASYNC)
+                .displayFragment();
+
+        InOrder inOrder = inOrder(fragmentManager, transaction);
+        inOrder.verify(fragmentManager).popBackStack(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+        inOrder.verify(transaction).setReorderingAllowed(true);
+        inOrder.verify(transaction).commit();
+        verify(fragmentManager, never()).executePendingTransactions();
+
+        assertEquals(7, id);
+    }
+
+    @Test
+    public void testDisplayFragmentAsyncByDefault() {
+        assertEquals(CommitStrategy.ASYNC, flowr.getDefaultCommitStrategy());
+
+        flowr.open(TestFragment.class).displayFragment();
+
+        verify(transaction, never()).setReorderingAllowed(true);
+        verify(transaction).commit();
+        verify(fragmentManager, never()).executePendingTransactions();
+    }
+
+    @Test
+    public void testDisplayFragmentWhileExecutingTransactions() {
+        IllegalStateException executing =
+                new IllegalStateException("FragmentManager is already executing transactions");
+        doThrow(executing).when(fragmentManager).executePendingTransactions();
+        doThrow(executing).when(transaction).commitNow();
+
+        int id = flowr.open(TestFragment.class)
+                .setCommitStrategy(CommitStrategy.NOW)
+                .displayFragment();
+
+        assertEquals(7, id);
+
+        flowr.open(OtherFragment.class)
+                .skipBackStack(true)
+                .setCommitStrategy(CommitStrategy.NOW)
+                .displayFragment();
+
+        verify(transaction, times(2)).commit();
+    }
+
+    @Test
+    public void testDisplayPooledFragment() {
+        final List<Fragment> created = new ArrayList<>();
+        flowr.setFragmentInstantiator(new FragmentInstantiator() {
+            @NonNull
+            @Override
+            public Fragment instantiate(@NonNull Class<? extends Fragment> fragmentClass) {
+                created.add(new TestFragment());
+                return created.get(created.size() - 1);
+            }
+        });
+
+        flowr.registerPooledFragment(TestFragment.class, 2);
+        assertTrue(created.isEmpty());
+        assertEquals(1, idleHandlers.size());
+
+        assertTrue(idleHandlers.get(0).queueIdle());
+        assertFalse(idleHandlers.get(0).queueIdle());
+        assertEquals(2, created.size());
+
+        flowr.open(TestFragment.class).displayFragment();
+
+        verify(transaction).add(CONTAINER_ID, created.get(0));
+        assertEquals(2, idleHandlers.size());
+
+        assertFalse(idleHandlers.get(1).queueIdle());
+        assertEquals(3, created.size());
+    }
+
+    @Test
+    public void testPooledFragmentsDroppedOnTrimMemory() {
+        flowr.registerPooledFragment(TestFragment.class, 1);
+        assertFalse(idleHandlers.get(0).queueIdle());
+
+        flowr.onTrimMemory(0);
+
+        final TestFragment fragment = new TestFragment();
+        flowr.setFragmentInstantiator(new FragmentInstantiator() {
+            @NonNull
+            @Override
+            public Fragment instantiate(@NonNull Class<? extends Fragment> fragmentClass) {
+                return fragment;
+            }
+        });
+
+        flowr.open(TestFragment.class).displayFragment();
+
+        verify(transaction).add(CONTAINER_ID, fragment);
+    }
+
+    @Test
+    public void testNavigationPredictions() throws IOException {
+        File file = temporaryFolder.newFile();
+        assertTrue(file.delete());
+
+        flowr.setNavigationPredictionFile(file);
+        backgroundTasks.remove(0).run();
+
+        TestFragment home = new TestFragment();
+        OtherFragment other = new OtherFragment();
+        for (Fragment fragment : Arrays.asList(home, other, home)) {
+            when(fragmentManager.findFragmentById(CONTAINER_ID)).thenReturn(fragment);
+            flowr.onBackStackChanged();
+        }
+
+        assertEquals(1, idleHandlers.size());
+        assertFalse(idleHandlers.get(0).queueIdle());
+        assertEquals(1, backgroundTasks.size());
+        backgroundTasks.remove(0).run();
+
+        flowr.onDestroy();
+        backgroundTasks.remove(0).run();
+
+        FlowrTransitionMatrix matrix = new FlowrTransitionMatrix();
+        matrix.load(file);
+        assertEquals(Collections.singletonList(OtherFragment.class.getName()),
+                matrix.predict(TestFragment.class.getName(), 2));
+    }
+
+    @Test
+    public void testPredictedFragmentsNotInitialized() throws IOException {
+        File file = temporaryFolder.newFile();
+        FlowrTransitionMatrix matrix = new FlowrTransitionMatrix();
+        matrix.record(TestFragment.class.getName(), UninitializedFragment.class.getName());
+        matrix.save(file);
+
+        flowr.setNavigationPredictionFile(file);
+        backgroundTasks.remove(0).run();
+
+        when(fragmentManager.findFragmentById(CONTAINER_ID)).thenReturn(new TestFragment());
+        flowr.onBackStackChanged();
+
+        assertFalse(idleHandlers.remove(0).queueIdle());
+        backgroundTasks.remove(0).run();
+
+        assertTrue(INITIALIZED_FRAGMENTS.isEmpty());
+    }
+
+    @Test
+    public void testPopToFragmentClass() {
+        flowr.open(TestFragment.class).displayFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(1);
+        flowr.open(OtherFragment.class).displayFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(2);
+        flowr.open(OtherFragment.class).displayFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(3);
+        flowr.onBackStackChanged();
+
+        assertEquals(0, flowr.indexOf(TestFragment.class));
+        assertEquals(2, flowr.indexOf(OtherFragment.class));
+
+        assertTrue(flowr.popTo(TestFragment.class));
+        InOrder inOrder = inOrder(fragmentManager);
+        inOrder.verify(fragmentManager).executePendingTransactions();
+        inOrder.verify(fragmentManager).popBackStackImmediate(10, 0);
+
+        assertTrue(flowr.popTo(OtherFragment.class));
+        verify(fragmentManager, never()).popBackStackImmediate(12, 0);
+
+        flowr.close(2);
+        verify(fragmentManager).popBackStackImmediate(11, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+    }
+
+    @Test
+    public void testBackStackIndexRestored() {
+        flowr.open(TestFragment.class).displayFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(1);
+        flowr.open(OtherFragment.class).displayFragment();
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(2);
+
+        Flowr restored = new Flowr(CONTAINER_ID, screen, resultPublisher);
+
+        assertEquals(0, restored.indexOf(TestFragment.class));
+        assertEquals(1, restored.indexOf(OtherFragment.class));
+    }
+
+    public static class TestFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class OtherFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class UninitializedFragment extends AbstractFlowrFragment {
+
+        static {
+            INITIALIZED_FRAGMENTS.add(UninitializedFragment.class.getName());
+        }
+    }
+}
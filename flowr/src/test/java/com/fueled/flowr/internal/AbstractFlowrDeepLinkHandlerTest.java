@@ -3,6 +3,7 @@ package com.fueled.flowr.internal;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 
 import com.fueled.flowr.AbstractFlowrFragment;
 import com.fueled.flowr.Flowr;
@@ -13,10 +14,18 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -95,6 +104,509 @@ public class AbstractFlowrDeepLinkHandlerTest {
         assertNull(info);
     }
 
+    @Test
+    public void testMapLinkLiteralTakesPrecedenceOverPathVariable() {
+        when(uri.getPath()).thenReturn("/m/new");
+        when(uri.toString()).thenReturn("http://fueled.com/m/new");
+
+        deepLinkHandler.addFragment("/m/{id}", DemoFragment.class);
+        deepLinkHandler.addFragment("/m/new", SampleFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/m/new");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(SampleFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkFallsBackToPathVariable() {
+        when(uri.getPath()).thenReturn("/m/new/details/");
+        when(uri.toString()).thenReturn("http://fueled.com/m/new/details/");
+
+        deepLinkHandler.addFragment("/m/new", SampleFragment.class);
+        deepLinkHandler.addFragment("/m/{id}/details", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/m/new/details/");
+        verify(bundle).putString("id", "new");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkAmongManyLiterals() {
+        when(uri.getPath()).thenReturn("/page13/");
+        when(uri.toString()).thenReturn("http://fueled.com/page13/");
+
+        for (int i = 0; i < 20; i++) {
+            deepLinkHandler.addFragment("/page" + i,
+                    i == 13 ? SampleFragment.class : DemoFragment.class);
+        }
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        assertNotNull(info);
+        assertEquals(SampleFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkWithCustomMatcher() {
+        when(uri.getPath()).thenReturn("/anything/456");
+        when(uri.toString()).thenReturn("http://fueled.com/anything/456");
+
+        AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> handler =
+                spy(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+                    @Override
+                    protected int findRoute(@NonNull DeepLinkMatch match) {
+                        return match.segmentCount() == 2 ? 1 : NO_ROUTE;
+                    }
+                });
+        when(handler.getNewBundle()).thenReturn(bundle);
+
+        handler.addFragment("/hello", SampleFragment.class);
+        handler.addFragment("/m/{id}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = handler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/anything/456");
+        verify(bundle).putString("id", "456");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkWithStaticPathMatcher() {
+        when(uri.getPath()).thenReturn("//m/new/");
+        when(uri.toString()).thenReturn("http://fueled.com//m/new/");
+
+        AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> handler =
+                spy(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+                    @Override
+                    protected int findRoute(@NonNull DeepLinkMatch match) {
+                        assertFalse(match.pathEquals("m/ne"));
+                        assertFalse(match.pathEquals("m/new/"));
+
+                        // hash of "m/new" with the seed 7, as computed by the annotation processor
+                        return match.pathHash(7) == -1565469904 && match.pathEquals("m/new")
+                                ? 1 : NO_ROUTE;
+                    }
+                });
+        when(handler.getNewBundle()).thenReturn(bundle);
+
+        handler.addFragment("/hello", SampleFragment.class);
+        handler.addFragment("/m/new", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = handler.getDeepLinkInfoForIntent(intent);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testRoutesRegisteredLazilyOnce() {
+        when(uri.getPath()).thenReturn("/hello");
+        when(uri.toString()).thenReturn("http://fueled.com/hello");
+
+        AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> handler =
+                spy(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+                    @Override
+                    protected void registerRoutes() {
+                        addFragment("/hello", SampleFragment.class);
+                    }
+                });
+        when(handler.getNewBundle()).thenReturn(bundle);
+
+        verify(handler, never()).registerRoutes();
+
+        assertEquals(SampleFragment.class, handler.getDeepLinkInfoForIntent(intent).fragment);
+        assertEquals(SampleFragment.class, handler.getDeepLinkInfoForIntent(intent).fragment);
+
+        verify(handler, times(1)).registerRoutes();
+    }
+
+    @Test
+    public void testFragmentLoadedWhenRouteMatches() {
+        when(uri.getPath()).thenReturn("/hello");
+        when(uri.toString()).thenReturn("http://fueled.com/hello");
+
+        AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> handler =
+                spy(new AbstractFlowrDeepLinkHandler<AbstractFlowrFragment>() {
+                    @Override
+                    protected void registerRoutes() {
+                        addRoute("/hi");
+                        addRoute("/hello");
+                    }
+
+                    @Override
+                    protected Class<? extends AbstractFlowrFragment> loadFragment(int id) {
+                        return id == 0 ? DemoFragment.class : SampleFragment.class;
+                    }
+                });
+        when(handler.getNewBundle()).thenReturn(bundle);
+
+        assertEquals(SampleFragment.class, handler.getDeepLinkInfoForIntent(intent).fragment);
+        assertEquals(SampleFragment.class, handler.getDeepLinkInfoForIntent(intent).fragment);
+
+        verify(handler, times(1)).loadFragment(1);
+        verify(handler, never()).loadFragment(0);
+    }
+
+    @Test
+    public void testMapLinkFromRouteTable() throws IOException {
+        when(uri.getPath()).thenReturn("/hello");
+        when(uri.toString()).thenReturn("http://fueled.com/hello");
+
+        // strings sorted and front coded: "/hello", "/hi", then the two fragment class names
+        String demoFragment = DemoFragment.class.getName();
+        String sampleFragment = SampleFragment.class.getName();
+        int sharedLength = demoFragment.length() - "DemoFragment".length();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(bytes);
+        table.writeInt(DeepLinkRouteTable.MAGIC);
+        table.writeShort(DeepLinkRouteTable.VERSION);
+        table.writeInt(4);
+        table.writeShort(0);
+        table.writeUTF("/hello");
+        table.writeShort(2);
+        table.writeUTF("i");
+        table.writeShort(0);
+        table.writeUTF(demoFragment);
+        table.writeShort(sharedLength);
+        table.writeUTF(sampleFragment.substring(sharedLength));
+        table.writeInt(2);
+        table.writeInt(1);
+        table.writeInt(2);
+        table.writeInt(0);
+        table.writeInt(3);
+
+        deepLinkHandler.addRouteTable(new ByteArrayInputStream(bytes.toByteArray()));
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        assertNotNull(info);
+        assertEquals(SampleFragment.class, info.fragment);
+        assertEquals("/hi", deepLinkHandler.getRoutes().get(0).pattern);
+    }
+
+    @Test
+    public void testMapLinkFromRouteTableResource() {
+        when(uri.getPath()).thenReturn("/m/123");
+        when(uri.toString()).thenReturn("http://fueled.com/m/123");
+
+        // written by the annotation compiler's binary route table writer
+        deepLinkHandler.addRouteTable("AbstractFlowrDeepLinkHandlerTest.routes");
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString("id", "123");
+
+        assertNotNull(info);
+        assertEquals(SampleFragment.class, info.fragment);
+        assertEquals(2, deepLinkHandler.getRoutes().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingRouteTable() {
+        deepLinkHandler.addRouteTable("Missing.routes");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidRouteTable() throws IOException {
+        deepLinkHandler.addRouteTable(new ByteArrayInputStream(new byte[] {'F', 'L', 'O', 'W'}));
+    }
+
+    @Test
+    public void testMapLinkWithTypedPathVariable() {
+        when(uri.getPath()).thenReturn("/order/-42");
+        when(uri.toString()).thenReturn("http://fueled.com/order/-42");
+
+        deepLinkHandler.addFragment("/order/{slug}", SampleFragment.class);
+        deepLinkHandler.addFragment("/order/{id:long}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/order/-42");
+        verify(bundle).putLong("id", -42L);
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkTypedPathVariableMismatch() {
+        when(uri.getPath()).thenReturn("/order/99999999999");
+        when(uri.toString()).thenReturn("http://fueled.com/order/99999999999");
+
+        deepLinkHandler.addFragment("/order/{id:int}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verifyZeroInteractions(bundle);
+        assertNull(info);
+    }
+
+    @Test
+    public void testMapLinkWithQueryKeys() {
+        when(uri.getPath()).thenReturn("/search");
+        when(uri.getScheme()).thenReturn("https");
+        when(uri.getHost()).thenReturn("fueled.com");
+        when(uri.getEncodedQuery()).thenReturn("page=2&q=flowr+router&q=ignored");
+        when(uri.toString()).thenReturn("https://fueled.com/search?page=2&q=flowr+router&q=ignored");
+
+        deepLinkHandler.addFragment("/search", SampleFragment.class);
+        deepLinkHandler.addFragment("https://fueled.com/search?q&page?&ref?", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL,
+                "https://fueled.com/search?page=2&q=flowr+router&q=ignored");
+        verify(bundle).putString("q", "flowr router");
+        verify(bundle).putString("page", "2");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkMissingQueryKeyFallsBack() {
+        when(uri.getPath()).thenReturn("/search");
+        when(uri.getScheme()).thenReturn("https");
+        when(uri.getHost()).thenReturn("fueled.com");
+        when(uri.getEncodedQuery()).thenReturn("page=2");
+        when(uri.toString()).thenReturn("https://fueled.com/search?page=2");
+
+        deepLinkHandler.addFragment("/search", SampleFragment.class);
+        deepLinkHandler.addFragment("*://fueled.com/search?q", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "https://fueled.com/search?page=2");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(SampleFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkHostMismatch() {
+        when(uri.getPath()).thenReturn("/m/123");
+        when(uri.getScheme()).thenReturn("https");
+        when(uri.getHost()).thenReturn("example.com");
+        when(uri.toString()).thenReturn("https://example.com/m/123");
+
+        deepLinkHandler.addFragment("https://fueled.com/m/{id}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verifyZeroInteractions(bundle);
+        assertNull(info);
+    }
+
+    @Test
+    public void testMapLinkHostTakesPrecedenceOverPath() {
+        when(uri.getPath()).thenReturn("/m/new");
+        when(uri.getScheme()).thenReturn("https");
+        when(uri.getHost()).thenReturn("Fueled.com");
+        when(uri.toString()).thenReturn("https://Fueled.com/m/new");
+
+        deepLinkHandler.addFragment("/m/new", SampleFragment.class);
+        deepLinkHandler.addFragment("myapp://*/m/new", SampleFragment.class);
+        deepLinkHandler.addFragment("https://example.com/m/new", SampleFragment.class);
+        deepLinkHandler.addFragment("*://fueled.com/m/{id}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "https://Fueled.com/m/new");
+        verify(bundle).putString("id", "new");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkFallsBackToDefaultPartition() {
+        when(uri.getPath()).thenReturn("/m/123");
+        when(uri.getScheme()).thenReturn("myapp");
+        when(uri.getHost()).thenReturn("fueled.com");
+        when(uri.toString()).thenReturn("myapp://fueled.com/m/123");
+
+        deepLinkHandler.addFragment("myapp://fueled.com/search", SampleFragment.class);
+        deepLinkHandler.addFragment("myapp://*/order/{id}", SampleFragment.class);
+        deepLinkHandler.addFragment("/m/{id}", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "myapp://fueled.com/m/123");
+        verify(bundle).putString("id", "123");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkAmongManyHosts() {
+        when(uri.getPath()).thenReturn("/m/123");
+        when(uri.getScheme()).thenReturn("https");
+        when(uri.getHost()).thenReturn("host7.fueled.com");
+        when(uri.toString()).thenReturn("https://host7.fueled.com/m/123");
+
+        for (int i = 0; i < 10; i++) {
+            deepLinkHandler.addFragment("https://host" + i + ".fueled.com/m/{id}",
+                    i == 7 ? DemoFragment.class : SampleFragment.class);
+        }
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "https://host7.fueled.com/m/123");
+        verify(bundle).putString("id", "123");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkWithWildcard() {
+        when(uri.getPath()).thenReturn("/cms/about/v2");
+        when(uri.toString()).thenReturn("http://fueled.com/cms/about/v2");
+
+        deepLinkHandler.addFragment("/cms/{slug}/*", DemoFragment.class);
+        deepLinkHandler.addFragment("/cms/*/{version}", SampleFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/cms/about/v2");
+        verify(bundle).putString("slug", "about");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkWithCatchAll() {
+        when(uri.getPath()).thenReturn("/help/faq/accounts/2");
+        when(uri.toString()).thenReturn("http://fueled.com/help/faq/accounts/2");
+
+        deepLinkHandler.addFragment("/help/**", SampleFragment.class);
+        deepLinkHandler.addFragment("/help/{topic}/**", DemoFragment.class);
+        deepLinkHandler.addFragment("/help/faq/{section}", SampleFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/help/faq/accounts/2");
+        verify(bundle).putString("topic", "faq");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkCatchAllMatchesNoSegment() {
+        when(uri.getPath()).thenReturn("/help");
+        when(uri.toString()).thenReturn("http://fueled.com/help");
+
+        deepLinkHandler.addFragment("/help/**", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/help");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test
+    public void testMapLinkCatchAllAfterOtherRoutes() {
+        when(uri.getPath()).thenReturn("/help/contact");
+        when(uri.toString()).thenReturn("http://fueled.com/help/contact");
+
+        deepLinkHandler.addFragment("/help/contact/**", SampleFragment.class);
+        deepLinkHandler.addFragment("/{section}/*", DemoFragment.class);
+
+        FlowrDeepLinkInfo<AbstractFlowrFragment> info = deepLinkHandler.getDeepLinkInfoForIntent(intent);
+
+        verify(bundle).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/help/contact");
+        verify(bundle).putString("section", "help");
+        verifyNoMoreInteractions(bundle);
+
+        assertNotNull(info);
+        assertEquals(DemoFragment.class, info.fragment);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddFragmentWithMisplacedCatchAll() {
+        deepLinkHandler.addFragment("/help/**/details", DemoFragment.class);
+    }
+
+    @Test(timeout = 5000)
+    public void testMapLinkWithPathologicalRoutes() {
+        // every mix of literal, typed path variables and wildcard on the first 5 segments, so that
+        // a link failing on its last segment may backtrack through all of them
+        String[] kinds = {"1", "{i%d:int}", "{l%d:long}", "{s%d}", "*"};
+        for (int route = 0; route < 3125; route++) {
+            StringBuilder pattern = new StringBuilder();
+            for (int i = 0, kind = route; i < 5; i++, kind /= kinds.length) {
+                pattern.append('/').append(String.format(kinds[kind % kinds.length], i));
+            }
+
+            deepLinkHandler.addFragment(pattern + "/end",
+                    pattern.toString().equals("/{s0}/{s1}/{s2}/{s3}/{s4}")
+                            ? SampleFragment.class : DemoFragment.class);
+        }
+
+        when(uri.getPath()).thenReturn("/1/1/1/1/1/end");
+        assertEquals(DemoFragment.class,
+                deepLinkHandler.getDeepLinkInfoForIntent(intent).fragment);
+
+        when(uri.getPath()).thenReturn("/a/b/c/d/e/end");
+        assertEquals(SampleFragment.class,
+                deepLinkHandler.getDeepLinkInfoForIntent(intent).fragment);
+
+        for (String path : new String[] {"/1/1/1/1/1/other", "/1/1/1/1/1"}) {
+            when(uri.getPath()).thenReturn(path);
+
+            for (int i = 0; i < 1000; i++) {
+                assertNull(deepLinkHandler.getDeepLinkInfoForIntent(intent));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddFragmentWithPartialWildcard() {
+        deepLinkHandler.addFragment("/help/faq*", DemoFragment.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddFragmentWithDuplicateQueryKey() {
+        deepLinkHandler.addFragment("/m/{id}?id", DemoFragment.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddFragmentWithUnknownType() {
+        deepLinkHandler.addFragment("/order/{id:uuid}", DemoFragment.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddFragmentWithPartialPathVariable() {
+        deepLinkHandler.addFragment("/m/{id}-details", DemoFragment.class);
+    }
+
     public static class SampleFragment extends AbstractFlowrFragment {
 
     }
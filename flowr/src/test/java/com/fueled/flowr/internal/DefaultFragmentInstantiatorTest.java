@@ -0,0 +1,40 @@
+package com.fueled.flowr.internal;
+
+import com.fueled.flowr.AbstractFlowrFragment;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class DefaultFragmentInstantiatorTest {
+
+    private final DefaultFragmentInstantiator instantiator =
+            DefaultFragmentInstantiator.getInstance();
+
+    @Test
+    public void testInstantiate() {
+        TestFragment first = (TestFragment) instantiator
+                .instantiate(TestFragment.class);
+        TestFragment second = (TestFragment) instantiator
+                .instantiate(TestFragment.class);
+
+        assertEquals(TestFragment.class, first.getClass());
+        assertNotSame(first, second);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInstantiateWithoutPublicConstructor() {
+        instantiator.instantiate(PrivateFragment.class);
+    }
+
+    public static class TestFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class PrivateFragment extends AbstractFlowrFragment {
+
+        private PrivateFragment() {
+        }
+    }
+}
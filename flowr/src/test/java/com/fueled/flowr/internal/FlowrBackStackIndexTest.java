@@ -0,0 +1,134 @@
+package com.fueled.flowr.internal;
+
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import com.fueled.flowr.AbstractFlowrFragment;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlowrBackStackIndexTest {
+
+    @Mock FragmentManager fragmentManager;
+
+    private final FlowrBackStackIndex index = new FlowrBackStackIndex();
+    private final List<FragmentManager.BackStackEntry> entries = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        push(4, ListFragment.class);
+        push(9, DetailsFragment.class);
+        push(2, ListFragment.class);
+        push(5, DetailsFragment.class);
+        push(6, "other");
+        index.update(fragmentManager);
+    }
+
+    @Test
+    public void testEntryName() {
+        assertEquals("#id-3:" + ListFragment.class.getName(),
+                index.getEntryName("#id-", 3, ListFragment.class));
+    }
+
+    @Test
+    public void testIndexEntries() {
+        assertEquals(5, index.size());
+
+        assertEquals(2, index.indexOf(ListFragment.class));
+        assertEquals(3, index.indexOf(DetailsFragment.class));
+        assertEquals(-1, index.indexOf(OtherFragment.class));
+
+        assertEquals(1, index.indexOfTransaction(9));
+        assertEquals(4, index.indexOfTransaction(6));
+        assertEquals(-1, index.indexOfTransaction(1));
+
+        assertEquals(2, index.getTransactionId(2));
+        assertEquals(-1, index.getTransactionId(5));
+        assertEquals(ListFragment.class, index.getFragmentClass(0));
+        assertNull(index.getFragmentClass(4));
+    }
+
+    @Test
+    public void testUpdateAfterPopAndPush() {
+        entries.subList(2, entries.size()).clear();
+        push(2, OtherFragment.class);
+        index.update(fragmentManager);
+
+        assertEquals(3, index.size());
+        assertEquals(0, index.indexOf(ListFragment.class));
+        assertEquals(1, index.indexOf(DetailsFragment.class));
+        assertEquals(2, index.indexOf(OtherFragment.class));
+        assertEquals(-1, index.indexOfTransaction(5));
+        assertEquals(2, index.indexOfTransaction(2));
+    }
+
+    @Test
+    public void testUpdateOnlyIndexesChangedEntries() {
+        push(8, OtherFragment.class);
+        index.update(fragmentManager);
+
+        assertEquals(6, index.size());
+        assertEquals(5, index.indexOf(OtherFragment.class));
+
+        // the entries below the topmost one still in place are not read again
+        verify(fragmentManager, times(1)).getBackStackEntryAt(0);
+        verify(fragmentManager, times(1)).getBackStackEntryAt(3);
+        verify(fragmentManager, times(2)).getBackStackEntryAt(4);
+    }
+
+    @Test
+    public void testRestoredEntries() {
+        FlowrBackStackIndex restored = new FlowrBackStackIndex();
+        push(3, "#id-5:com.fueled.flowr.UnknownFragment");
+        push(7, "#id-6:" + String.class.getName());
+        restored.update(fragmentManager);
+
+        assertEquals(7, restored.size());
+        assertEquals(2, restored.indexOf(ListFragment.class));
+        assertEquals(3, restored.indexOf(DetailsFragment.class));
+        assertNull(restored.getFragmentClass(4));
+        assertNull(restored.getFragmentClass(5));
+        assertNull(restored.getFragmentClass(6));
+    }
+
+    private void push(int id, Class<? extends Fragment> fragmentClass) {
+        push(id, index.getEntryName("#id-", entries.size(), fragmentClass));
+    }
+
+    private void push(int id, String name) {
+        FragmentManager.BackStackEntry entry = mock(FragmentManager.BackStackEntry.class);
+        when(entry.getId()).thenReturn(id);
+        when(entry.getName()).thenReturn(name);
+
+        when(fragmentManager.getBackStackEntryAt(entries.size())).thenReturn(entry);
+        entries.add(entry);
+        when(fragmentManager.getBackStackEntryCount()).thenReturn(entries.size());
+    }
+
+    public static class ListFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class DetailsFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class OtherFragment extends AbstractFlowrFragment {
+
+    }
+}
@@ -0,0 +1,132 @@
+package com.fueled.flowr.internal;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.fueled.flowr.AbstractFlowrFragment;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlowrDeepLinkCacheTest {
+
+    @Mock FlowrDeepLinkHandler resolver;
+    @Mock Intent intent;
+    @Mock Uri uri;
+    @Mock Bundle data;
+    @Mock Bundle copy;
+    @Mock Bundle args;
+
+    private FlowrDeepLinkCache cache;
+
+    @Before
+    public void setup() {
+        cache = spy(new FlowrDeepLinkCache(resolver, 2));
+        doReturn(copy).when(cache).copyBundle(any(Bundle.class));
+
+        when(intent.getData()).thenReturn(uri);
+        when(uri.toString()).thenReturn("http://fueled.com/m/123");
+    }
+
+    @Test
+    public void testResolvedLinkIsCached() {
+        when(resolver.getDeepLinkInfoForIntent(intent))
+                .thenReturn(new FlowrDeepLinkInfo<>(data, AbstractFlowrFragment.class));
+
+        assertNotNull(cache.getDeepLinkInfoForIntent(intent));
+        FlowrDeepLinkInfo info = cache.getDeepLinkInfoForIntent(intent);
+
+        verify(resolver, times(1)).getDeepLinkInfoForIntent(intent);
+
+        assertNotNull(info);
+        assertEquals(copy, info.data);
+        assertEquals(AbstractFlowrFragment.class, info.fragment);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testCachedLinkIsInjected() {
+        when(resolver.getDeepLinkInfoForIntent(intent))
+                .thenReturn(new FlowrDeepLinkInfo<>(data, AbstractFlowrFragment.class));
+
+        TransactionData<AbstractFlowrFragment> transaction =
+                new TransactionData<>(AbstractFlowrFragment.class);
+        transaction.setDeepLinkIntent(intent);
+        transaction.setArgs(args);
+
+        assertTrue(cache.injectDeepLinkInfo(transaction));
+        assertTrue(cache.injectDeepLinkInfo(transaction));
+
+        verify(resolver, times(1)).getDeepLinkInfoForIntent(intent);
+        verify(args).putAll(data);
+        verify(args).putAll(copy);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testUnresolvedLinkIsNotInjected() {
+        TransactionData<AbstractFlowrFragment> transaction =
+                new TransactionData<>(AbstractFlowrFragment.class);
+        transaction.setDeepLinkIntent(intent);
+
+        assertFalse(cache.injectDeepLinkInfo(transaction));
+        assertFalse(cache.injectDeepLinkInfo(transaction));
+
+        assertNull(transaction.getArgs());
+        verify(resolver, times(1)).getDeepLinkInfoForIntent(intent);
+    }
+
+    @Test
+    public void testUnresolvedLinkIsCached() {
+        assertNull(cache.getDeepLinkInfoForIntent(intent));
+        assertNull(cache.getDeepLinkInfoForIntent(intent));
+
+        verify(resolver, times(1)).getDeepLinkInfoForIntent(intent);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedLinkIsEvicted() {
+        when(uri.toString()).thenReturn("http://fueled.com/a", "http://fueled.com/b",
+                "http://fueled.com/a", "http://fueled.com/c", "http://fueled.com/a",
+                "http://fueled.com/b");
+
+        for (int i = 0; i < 6; i++) {
+            cache.getDeepLinkInfoForIntent(intent);
+        }
+
+        // "/b" is evicted by "/c" since "/a" was used more recently
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testClear() {
+        cache.getDeepLinkInfoForIntent(intent);
+        cache.clear();
+        cache.getDeepLinkInfoForIntent(intent);
+
+        verify(resolver, times(2)).getDeepLinkInfoForIntent(intent);
+        assertEquals(0, cache.getHitCount());
+    }
+}
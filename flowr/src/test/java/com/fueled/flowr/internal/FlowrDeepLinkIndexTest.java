@@ -0,0 +1,295 @@
+package com.fueled.flowr.internal;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.fueled.flowr.AbstractFlowrFragment;
+import com.fueled.flowr.Flowr;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlowrDeepLinkIndexTest {
+
+    @Mock Uri detailsUri;
+    @Mock Uri unknownUri;
+    @Mock Intent intent;
+    @Mock Bundle args;
+
+    private FlowrDeepLinkIndex index;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        when(detailsUri.getPath()).thenReturn("/m/123/details");
+        when(unknownUri.getPath()).thenReturn("/unknown");
+
+        index = FlowrDeepLinkIndex.forHandlers(Arrays.<AbstractFlowrDeepLinkHandler>asList(
+                new MainHandler(), new LibraryHandler()));
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResolveBatch() {
+        DeepLinkBatchResult result = index.resolve(Arrays.asList(unknownUri, detailsUri, null));
+
+        assertEquals(3, result.size());
+        assertFalse(result.isResolved(0));
+        assertFalse(result.isResolved(2));
+        assertNull(result.getFragment(0));
+
+        assertTrue(result.isResolved(1));
+        assertEquals(2, result.getRouteId(1));
+        assertEquals(DetailsFragment.class, result.getFragment(1));
+        assertEquals(1, result.getParamCount(1));
+        assertEquals("id", result.getParamName(1, 0));
+        assertEquals(3, result.getParamStart(1, 0));
+        assertEquals(6, result.getParamEnd(1, 0));
+    }
+
+    @Test
+    public void testResolveLargeBatchOnExecutor() {
+        List<Uri> uris = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            uris.add(i % 2 == 0 ? detailsUri : unknownUri);
+        }
+
+        DeepLinkBatchResult result = index.resolve(uris, executor);
+
+        assertEquals(1000, result.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0, result.isResolved(i));
+        }
+    }
+
+    @Test
+    public void testResolveEmptyBatch() {
+        assertEquals(0, index.resolve(Collections.<Uri>emptyList(), executor).size());
+    }
+
+    @Test
+    public void testInjectDeepLinkInfo() {
+        when(intent.getData()).thenReturn(detailsUri);
+        when(detailsUri.toString()).thenReturn("http://fueled.com/m/123/details");
+
+        TransactionData<AbstractFlowrFragment> data = new TransactionData<>(HomeFragment.class);
+        data.setDeepLinkIntent(intent);
+        data.setArgs(args);
+
+        assertTrue(index.injectDeepLinkInfo(data));
+
+        verify(args).putString(Flowr.DEEP_LINK_URL, "http://fueled.com/m/123/details");
+        verify(args).putString("id", "123");
+        verifyNoMoreInteractions(args);
+        assertEquals(DetailsFragment.class, data.getFragmentClass());
+    }
+
+    @Test
+    public void testInjectUnresolvedDeepLinkInfo() {
+        when(intent.getData()).thenReturn(unknownUri);
+
+        TransactionData<AbstractFlowrFragment> data = new TransactionData<>(HomeFragment.class);
+        data.setDeepLinkIntent(intent);
+        data.setArgs(args);
+
+        assertFalse(index.injectDeepLinkInfo(data));
+
+        verifyZeroInteractions(args);
+        assertEquals(HomeFragment.class, data.getFragmentClass());
+    }
+
+    @Test
+    public void testPreloadFragments() {
+        LazyHandler handler = spy(new LazyHandler());
+        FlowrDeepLinkIndex lazyIndex = FlowrDeepLinkIndex.forHandlers(
+                Collections.<AbstractFlowrDeepLinkHandler>singletonList(handler));
+
+        lazyIndex.preloadFragments(Arrays.asList(detailsUri, unknownUri, null), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        verify(handler).loadFragment(1);
+        verify(handler, never()).loadFragment(0);
+    }
+
+    @Test
+    public void testHandlersOfTheSameClassKeepTheirRoutes() {
+        FlowrDeepLinkIndex homeIndex = FlowrDeepLinkIndex.forHandlers(
+                Collections.<AbstractFlowrDeepLinkHandler>singletonList(
+                        new RouteHandler("/home", HomeFragment.class)));
+        FlowrDeepLinkIndex detailsIndex = FlowrDeepLinkIndex.forHandlers(
+                Collections.<AbstractFlowrDeepLinkHandler>singletonList(
+                        new RouteHandler("/m/{id}/details", DetailsFragment.class)));
+
+        assertFalse(homeIndex.resolve(Collections.singletonList(detailsUri)).isResolved(0));
+        assertEquals(DetailsFragment.class,
+                detailsIndex.resolve(Collections.singletonList(detailsUri)).getFragment(0));
+    }
+
+    @Test
+    public void testIndexSharedForStaticRoutes() {
+        FlowrDeepLinkIndex staticIndex = FlowrDeepLinkIndex.forHandlers(
+                Collections.<AbstractFlowrDeepLinkHandler>singletonList(new StaticHandler()));
+
+        assertSame(staticIndex, FlowrDeepLinkIndex.forHandlers(
+                Collections.<AbstractFlowrDeepLinkHandler>singletonList(new StaticHandler())));
+        assertNotSame(index, FlowrDeepLinkIndex.forHandlers(
+                Arrays.<AbstractFlowrDeepLinkHandler>asList(new MainHandler(), new LibraryHandler())));
+        assertEquals(DetailsFragment.class,
+                staticIndex.resolve(Collections.singletonList(detailsUri)).getFragment(0));
+    }
+
+    @Test
+    public void testHandlerWithOwnMatcher() {
+        FlowrDeepLinkIndex matcherIndex = FlowrDeepLinkIndex.forHandlers(
+                Arrays.<AbstractFlowrDeepLinkHandler>asList(new MainHandler(),
+                        new MatcherHandler(), new LibraryHandler()));
+
+        DeepLinkBatchResult result = matcherIndex.resolve(Arrays.asList(detailsUri, unknownUri));
+
+        assertTrue(result.isResolved(0));
+        assertEquals(2, result.getRouteId(0));
+        assertEquals(HomeFragment.class, result.getFragment(0));
+        assertFalse(result.isResolved(1));
+    }
+
+    @Test
+    public void testStaticPathResolvedThroughHandlerMatcher() {
+        Uri newUri = mock(Uri.class);
+        when(newUri.getPath()).thenReturn("/m/new");
+
+        FlowrDeepLinkIndex matcherIndex = FlowrDeepLinkIndex.forHandlers(
+                Arrays.<AbstractFlowrDeepLinkHandler>asList(new StaticPathHandler(),
+                        new MainHandler()));
+
+        DeepLinkBatchResult result = matcherIndex.resolve(Arrays.asList(newUri, detailsUri));
+
+        assertEquals(0, result.getRouteId(0));
+        assertEquals(DetailsFragment.class, result.getFragment(0));
+        assertFalse(result.isResolved(1));
+    }
+
+    public static class MainHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected void registerRoutes() {
+            addFragment("/home", HomeFragment.class);
+            addFragment("/m/{id}", DetailsFragment.class);
+        }
+    }
+
+    public static class LibraryHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected void registerRoutes() {
+            addFragment("/m/{id}/details", DetailsFragment.class);
+        }
+    }
+
+    public static class RouteHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        public RouteHandler(String url, Class<? extends AbstractFlowrFragment> fragment) {
+            addFragment(url, fragment);
+        }
+    }
+
+    public static class StaticHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected boolean hasStaticRoutes() {
+            return true;
+        }
+
+        @Override
+        protected void registerRoutes() {
+            addFragment("/m/{id}/details", DetailsFragment.class);
+        }
+    }
+
+    public static class MatcherHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected void registerRoutes() {
+            addFragment("/m/{id}/details", HomeFragment.class);
+        }
+
+        @Override
+        protected int findRoute(DeepLinkMatch match) {
+            return match.segmentCount() == 3 && matchesRoute(match, 0) ? 0 : NO_ROUTE;
+        }
+    }
+
+    public static class StaticPathHandler
+            extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected void registerRoutes() {
+            addFragment("/m/new", DetailsFragment.class);
+        }
+
+        @Override
+        protected int findRoute(DeepLinkMatch match) {
+            // hash of "m/new" with the seed 7, as computed by the annotation processor
+            return match.pathHash(7) == -1565469904 && match.pathEquals("m/new")
+                    && matchesRoute(match, 0) ? 0 : NO_ROUTE;
+        }
+    }
+
+    public static class LazyHandler extends AbstractFlowrDeepLinkHandler<AbstractFlowrFragment> {
+
+        @Override
+        protected void registerRoutes() {
+            addRoute("/home");
+            addRoute("/m/{id}/details");
+        }
+
+        @Override
+        protected Class<? extends AbstractFlowrFragment> loadFragment(int id) {
+            return id == 0 ? HomeFragment.class : DetailsFragment.class;
+        }
+    }
+
+    public static class HomeFragment extends AbstractFlowrFragment {
+
+    }
+
+    public static class DetailsFragment extends AbstractFlowrFragment {
+
+    }
+}
@@ -0,0 +1,73 @@
+package com.fueled.flowr.internal;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlowrTransitionMatrixTest {
+
+    private final FlowrTransitionMatrix matrix = new FlowrTransitionMatrix();
+
+    @Test
+    public void testPredictMostFrequentTransitions() {
+        matrix.record("Home", "Product");
+        matrix.record("Home", "Search");
+        matrix.record("Home", "Cart");
+        matrix.record("Home", "Search");
+        matrix.record("Home", "Cart");
+        matrix.record("Home", "Search");
+        matrix.record("Search", "Home");
+
+        assertEquals(Arrays.asList("Search", "Cart"), matrix.predict("Home", 2));
+        assertEquals(Arrays.asList("Search", "Cart", "Product"), matrix.predict("Home", 5));
+        assertEquals(Collections.singletonList("Home"), matrix.predict("Search", 2));
+        assertEquals(Collections.emptyList(), matrix.predict("Cart", 2));
+        assertEquals(Collections.emptyList(), matrix.predict("Unknown", 2));
+    }
+
+    @Test
+    public void testOldTransitionsFade() {
+        for (int i = 0; i <= FlowrTransitionMatrix.MAX_COUNT; i++) {
+            matrix.record("Home", "Search");
+        }
+
+        for (int i = 0; i < FlowrTransitionMatrix.MAX_COUNT / 2 + 2; i++) {
+            matrix.record("Home", "Product");
+        }
+
+        assertEquals(Arrays.asList("Product", "Search"), matrix.predict("Home", 2));
+    }
+
+    @Test
+    public void testReadWrittenMatrix() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            matrix.record("Page" + i, "Page" + (i + 1));
+        }
+
+        matrix.record("Page3", "Page0");
+        matrix.record("Page3", "Page0");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        matrix.write(output);
+
+        FlowrTransitionMatrix readMatrix = new FlowrTransitionMatrix();
+        readMatrix.record("Page3", "Page4");
+        readMatrix.record("Page3", "Page4");
+        readMatrix.record("Page3", "Page4");
+        readMatrix.read(new ByteArrayInputStream(output.toByteArray()));
+
+        assertEquals(Arrays.asList("Page4", "Page0"), readMatrix.predict("Page3", 2));
+        assertEquals(Collections.singletonList("Page20"), readMatrix.predict("Page19", 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidMatrix() throws IOException {
+        matrix.read(new ByteArrayInputStream(new byte[]{0, 1, 2, 3, 4, 5}));
+    }
+}
@@ -1,11 +0,0 @@
-package com.fueled.flowr.sample.library;
-
-import com.fueled.flowr.annotations.DeepLinkHandler;
-
-/**
- * Created by hussein@fueled.com on 05/06/2017.
- * Copyright (c) 2017 Fueled. All rights reserved.
- */
-@DeepLinkHandler
-public class LibraryDeepLinkHandler {
-}
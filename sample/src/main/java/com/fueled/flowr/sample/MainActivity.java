@@ -14,14 +14,13 @@ import com.fueled.flowr.DrawerHandler;
 import com.fueled.flowr.Flowr;
 import com.fueled.flowr.NavigationIconType;
 import com.fueled.flowr.ToolbarHandler;
-import com.fueled.flowr.annotations.DeepLinkHandler;
+import com.fueled.flowr.annotations.DeepLinkRegistry;
 import com.fueled.flowr.sample.core.AbstractActivity;
 import com.fueled.flowr.sample.core.AbstractFragment;
 import com.fueled.flowr.sample.core.FragmentResultPublisherImpl;
 import com.fueled.flowr.sample.databinding.ActivityMainBinding;
-import com.fueled.flowr.sample.library.LibraryDeepLinkHandlerImpl;
 
-@DeepLinkHandler("MainDeepLinkHandlerImpl")
+@DeepLinkRegistry("MainDeepLinkRegistry")
 public class MainActivity extends AbstractActivity implements ToolbarHandler, DrawerHandler {
 
     private Flowr flowr;
@@ -52,8 +51,7 @@ public class MainActivity extends AbstractActivity implements ToolbarHandler, Dr
             flowr = new Flowr(R.id.main_container, this, this, this,
                     FragmentResultPublisherImpl.getInstance());
 
-            flowr.setDeepLinkHandlers(new MainDeepLinkHandlerImpl(),
-                    new LibraryDeepLinkHandlerImpl());
+            flowr.setDeepLinkHandlers(MainDeepLinkRegistry.createHandlers());
         }
 
         return flowr;